@@ -0,0 +1,32 @@
+package com.pos.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * The application pool, bound to {@code spring.datasource.hikari} as Spring Boot would
+ * set it up, and a second small pool on the same database for id block reservations
+ * ({@code pos.id-blocks.datasource}). A reservation can be needed by a thread that
+ * already holds an application connection, so taking it from the same pool could wait
+ * on itself once every connection belongs to such a thread.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(name = "idBlockDataSource")
+    @ConfigurationProperties("pos.id-blocks.datasource")
+    public HikariDataSource idBlockDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
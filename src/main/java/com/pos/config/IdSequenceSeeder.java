@@ -0,0 +1,49 @@
+package com.pos.config;
+
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Orders, order items and loyalty programs take their ids from block sequences in
+ * {@code id_blocks} (so Hibernate can batch their INSERTs), but their tables may
+ * already hold rows numbered by AUTO_INCREMENT. Before anything is inserted, move
+ * each sequence past the highest existing id. Never moves a sequence backwards.
+ */
+@Component
+public class IdSequenceSeeder {
+
+    // id_blocks name -> table holding the ids
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "orders", "orders",
+            "order_items", "order_items",
+            "loyalty_programs", "loyalty_programs");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceSeeder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void seed() {
+        SEQUENCES.forEach((name, table) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            long floor = maxId + 1;
+
+            int updated = jdbcTemplate.update(
+                    "UPDATE id_blocks SET next_value = ? WHERE name = ? AND next_value < ?", floor, name, floor);
+            if (updated == 0) {
+                try {
+                    jdbcTemplate.update("INSERT INTO id_blocks (name, next_value) VALUES (?, ?)", name, floor);
+                } catch (DuplicateKeyException e) {
+                    // Row already exists and is at or past the floor (or another node just seeded it)
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package com.pos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Dedicated, bounded pool for catalog/loyalty imports. Keeping imports off the
+ * Tomcat workers and capping them at a few threads (and therefore a few pooled
+ * DB connections) means checkout requests never wait behind an import.
+ */
+@Configuration
+public class ImportExecutorConfig {
+
+    @Bean(name = "importExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor importExecutor(@Value("${pos.import.workers:2}") int workers,
+                                                 @Value("${pos.import.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Chunk writers of the import pipeline, shared by all imports: each running import
+     * takes {@code writer-threads} of them, further imports queue their writers. Kept
+     * apart from {@code importExecutor}, whose jobs wait on these writers.
+     */
+    @Bean(name = "importWriterExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor importWriterExecutor(@Value("${pos.import.workers:2}") int workers,
+                                                       @Value("${pos.import.writer-threads:3}") int writerThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers * writerThreads);
+        executor.setMaxPoolSize(workers * writerThreads);
+        executor.setThreadNamePrefix("import-writer-");
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+}
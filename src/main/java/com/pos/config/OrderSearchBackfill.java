@@ -0,0 +1,63 @@
+package com.pos.config;
+
+import com.pos.model.Order;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the reversed phone/VAT search columns on orders stored before they existed.
+ * Runs once per boot on its own thread, so startup does not wait for it, and only
+ * selects rows that still need filling, in primary key chunks; once everything is
+ * filled a boot costs one empty query.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderSearchBackfill {
+
+    private static final int CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread t = new Thread(this::backfill, "order-search-backfill");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    void backfill() {
+        try {
+            long lastId = 0;
+            int filled = 0;
+            while (true) {
+                List<Object[]> updates = new ArrayList<>();
+                jdbcTemplate.query(
+                        "SELECT id, customer_phone, customer_vat FROM orders WHERE id > ?"
+                                + " AND (customer_phone IS NOT NULL AND customer_phone_rev IS NULL"
+                                + " OR customer_vat IS NOT NULL AND customer_vat_rev IS NULL)"
+                                + " ORDER BY id LIMIT " + CHUNK,
+                        rs -> {
+                            updates.add(new Object[]{Order.reverse(rs.getString(2)), Order.reverse(rs.getString(3)),
+                                    rs.getLong(1)});
+                        }, lastId);
+                if (updates.isEmpty()) break;
+                lastId = (Long) updates.get(updates.size() - 1)[2];
+
+                jdbcTemplate.batchUpdate(
+                        "UPDATE orders SET customer_phone_rev = ?, customer_vat_rev = ? WHERE id = ?", updates);
+                filled += updates.size();
+            }
+            if (filled > 0) log.info("Filled reversed search columns on {} orders", filled);
+        } catch (Exception e) {
+            log.warn("Order search backfill failed, will retry on next start: {}", e.getMessage());
+        }
+    }
+}
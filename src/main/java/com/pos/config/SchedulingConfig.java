@@ -0,0 +1,12 @@
+package com.pos.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the background flushers (stock write-behind and friends).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,55 @@
+package com.pos.controller;
+
+import com.pos.service.CatalogSnapshotService;
+import com.pos.service.CatalogSnapshotService.Snapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequestMapping("/api/catalog")
+@CrossOrigin(origins = "*")
+public class CatalogController {
+
+    @Autowired
+    private CatalogSnapshotService snapshotService;
+
+    /**
+     * Full catalog for a terminal cold boot
+     * GET /api/catalog/snapshot
+     * Returns gzip-compressed JSON with an ETag of the catalog version; send it back in
+     * If-None-Match to get 304 when nothing changed. Continue with
+     * GET /api/products/changes?since=<cursor from the snapshot>.
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<byte[]> getSnapshot(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
+        String version = snapshotService.currentVersion();
+        String etag = "\"" + version + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        Snapshot snapshot = snapshotService.getSnapshot(version);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        // Clients that cannot inflate get the plain document
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(snapshot.gzip()))) {
+            return response.body(in.readAllBytes());
+        }
+    }
+}
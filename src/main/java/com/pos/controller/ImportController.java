@@ -0,0 +1,35 @@
+package com.pos.controller;
+
+import com.pos.dto.ImportJobDTO;
+import com.pos.service.ImportJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/imports")
+@CrossOrigin(origins = "*")
+public class ImportController {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @GetMapping
+    public List<ImportJobDTO> getJobs() {
+        return importJobService.getJobs();
+    }
+
+    /**
+     * Progress of a background import
+     * GET /api/imports/{jobId}
+     * Returns: status, rowsProcessed, errorCount, errors, rowsPerSecond and the summary result when done
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportJobDTO> getJob(@PathVariable String jobId) {
+        return importJobService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -1,6 +1,9 @@
 package com.pos.controller;
 
+import com.pos.dto.CartItemDTO;
+import com.pos.dto.ImportJobDTO;
 import com.pos.model.Loyalty;
+import com.pos.service.ImportJobService;
 import com.pos.service.LoyaltyService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +21,9 @@ public class LoyaltyController {
     @Autowired
     private LoyaltyService loyaltyService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
     @GetMapping
     public List<Loyalty> getAllLoyalties() {
         return loyaltyService.getAllLoyalties();
@@ -68,20 +74,42 @@ public class LoyaltyController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * POST /api/loyalty/evaluate
+     * Price a sale cart with the server's loyalty rules, for the terminal's cart display.
+     * Discount, promotion and reward are read only for lines no loyalty program covers.
+     */
+    @PostMapping("/evaluate")
+    public ResponseEntity<?> evaluateCart(@RequestBody List<CartItemDTO> items) {
+        try {
+            return ResponseEntity.ok(loyaltyService.evaluateCart(items));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "status", "error",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Queue a loyalty import (CSV or XLSX) as a background job
+     * POST /api/loyalty/import
+     * Returns 202 with the job; poll GET /api/imports/{jobId} for progress and the summary.
+     */
     @PostMapping("/import")
     public ResponseEntity<?> importLoyalties(@RequestParam("file") MultipartFile file) {
         try {
             String filename = file.getOriginalFilename();
-            List<Loyalty> imported;
+            ImportJobDTO job;
             if (filename != null && filename.toLowerCase().endsWith(".csv")) {
-                imported = loyaltyService.importFromCsv(file);
+                job = importJobService.submit("loyalty", file, loyaltyService::importFromCsv);
             } else {
-                imported = loyaltyService.importFromExcel(file);
+                job = importJobService.submit("loyalty", file, loyaltyService::importFromExcel);
             }
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "imported", imported.size(),
-                "data", imported
+            return ResponseEntity.accepted().body(Map.of(
+                "status", "accepted",
+                "jobId", job.getJobId(),
+                "job", job
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -1,7 +1,11 @@
 package com.pos.controller;
 
+import com.pos.dto.BatchOrderDTO;
+import com.pos.dto.BatchOrderResultDTO;
 import com.pos.dto.CreateOrderDTO;
 import com.pos.dto.OrderSearchDTO;
+import com.pos.dto.OrderSnapshot;
+import com.pos.dto.OrderSummaryDTO;
 import com.pos.model.Order;
 import com.pos.service.OrderService;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -16,23 +21,63 @@ import java.util.List;
 @CrossOrigin(origins = "*")
 public class OrderController {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final OrderService orderService;
 
+    /**
+     * Create an order
+     * POST /api/orders/session/{sessionId}
+     * Optional header Idempotency-Key: retries with the same key return the stored order.
+     */
     @PostMapping("/session/{sessionId}")
-    public ResponseEntity<?> createOrder(@PathVariable Long sessionId, @RequestBody CreateOrderDTO dto) {
+    public ResponseEntity<?> createOrder(@PathVariable Long sessionId, @RequestBody CreateOrderDTO dto,
+                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            Order order = orderService.createOrder(sessionId, dto);
+            OrderSnapshot order = orderService.createOrder(sessionId, dto, idempotencyKey);
             return ResponseEntity.ok(order);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    /**
+     * Replay orders queued offline, across sessions
+     * POST /api/orders/batch
+     * Body: [{ "sessionId": 1, "clientRef": "T1-0042", "order": { ...CreateOrderDTO... } }, ...]
+     * Returns one result per order (same order as the request) with status CREATED,
+     * DUPLICATE (idempotencyKey already used; carries the stored order) or FAILED.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createOrders(@RequestBody List<BatchOrderDTO> batch) {
+        if (batch.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body("At most " + MAX_BATCH_SIZE + " orders per batch");
+        }
+        List<BatchOrderResultDTO> results = orderService.createOrders(batch);
+        return ResponseEntity.ok(Map.of(
+                "created", results.stream().filter(r -> "CREATED".equals(r.getStatus())).count(),
+                "duplicates", results.stream().filter(r -> "DUPLICATE".equals(r.getStatus())).count(),
+                "failed", results.stream().filter(r -> "FAILED".equals(r.getStatus())).count(),
+                "results", results
+        ));
+    }
+
     @GetMapping("/session/{sessionId}")
-    public ResponseEntity<List<Order>> getSessionOrders(@PathVariable Long sessionId) {
+    public ResponseEntity<List<OrderSummaryDTO>> getSessionOrders(@PathVariable Long sessionId) {
         return ResponseEntity.ok(orderService.getSessionOrders(sessionId));
     }
 
+    /**
+     * Full order with its items
+     * GET /api/orders/{orderId}
+     */
+    @GetMapping("/{orderId}")
+    public ResponseEntity<Order> getOrder(@PathVariable Long orderId) {
+        return orderService.getOrderById(orderId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/number/{orderNumber}")
     public ResponseEntity<?> getOrderByNumber(@PathVariable String orderNumber) {
         return orderService.getOrderByNumber(orderNumber)
@@ -40,10 +85,16 @@ public class OrderController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Keyset-paginated order search; pass the returned cursor back for the next page
+     */
     @PostMapping("/search")
-    public ResponseEntity<List<Order>> searchOrders(@RequestBody OrderSearchDTO searchDTO) {
-        List<Order> orders = orderService.searchOrders(searchDTO);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> searchOrders(@RequestBody OrderSearchDTO searchDTO) {
+        try {
+            return ResponseEntity.ok(orderService.searchOrders(searchDTO));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PutMapping("/{orderId}/sync")
@@ -57,15 +108,15 @@ public class OrderController {
     }
 
     @GetMapping("/unsynced")
-    public ResponseEntity<List<Order>> getUnsyncedOrders() {
+    public ResponseEntity<List<OrderSummaryDTO>> getUnsyncedOrders() {
         return ResponseEntity.ok(orderService.getUnsyncedOrders());
     }
 
     @GetMapping("/{orderId}/json")
     public ResponseEntity<?> getOrderJson(@PathVariable Long orderId) {
         try {
-            return orderService.getOrderByNumber(orderId.toString())
-                    .map(order -> ResponseEntity.ok(order.getOrderJson()))
+            return orderService.getOrderJson(orderId)
+                    .map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
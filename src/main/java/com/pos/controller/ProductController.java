@@ -1,13 +1,19 @@
 package com.pos.controller;
 
+import com.pos.dto.CatalogChangesDTO;
+import com.pos.dto.ImportJobDTO;
+import com.pos.dto.ProductSnapshot;
 import com.pos.model.Product;
+import com.pos.service.ImportJobService;
 import com.pos.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -17,18 +23,68 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
     @GetMapping
     public List<Product> getAllProducts() {
         return productService.getAllProducts();
     }
 
+    /**
+     * Delta sync for terminals
+     * GET /api/products/changes?since=<cursor>&limit=500
+     * Omit "since" for a full first sync, then keep passing back the returned cursor;
+     * repeat immediately while "hasMore" is true.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) String since,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        try {
+            CatalogChangesDTO changes = productService.getChanges(since, limit);
+            return ResponseEntity.ok(changes);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Free-text product search for cashiers
+     * GET /api/products/search?q=latte&limit=20
+     * Matches name, barcode and category (Latin or Arabic); best matches first.
+     */
+    @GetMapping("/search")
+    public List<ProductSnapshot> searchProducts(@RequestParam String q,
+                                                @RequestParam(defaultValue = "20") int limit) {
+        return productService.searchProducts(q, Math.min(Math.max(limit, 1), 100));
+    }
+
     @GetMapping("/barcode/{barcode}")
-    public ResponseEntity<Product> getProductByBarcode(@PathVariable String barcode) {
+    public ResponseEntity<ProductSnapshot> getProductByBarcode(@PathVariable String barcode) {
         return productService.getProductByBarcode(barcode)
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Resolve many barcodes in one call
+     * POST /api/products/barcode/lookup
+     * Body: ["001", "002", ...]
+     * Returns: { "products": [...], "missing": ["..."] }
+     */
+    @PostMapping("/barcode/lookup")
+    public ResponseEntity<Map<String, Object>> lookupBarcodes(@RequestBody List<String> barcodes) {
+        Map<String, ProductSnapshot> found = productService.getProductsByBarcodes(barcodes);
+        List<String> missing = barcodes.stream()
+            .filter(barcode -> !found.containsKey(barcode))
+            .distinct()
+            .toList();
+        return ResponseEntity.ok(Map.of(
+            "products", new ArrayList<>(found.values()),
+            "missing", missing
+        ));
+    }
+
     @PostMapping
     public Product createProduct(@RequestBody Product product) {
         return productService.saveProduct(product);
@@ -46,11 +102,16 @@ public class ProductController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Queue a product import as a background job
+     * POST /api/products/import
+     * Returns 202 with the job; poll GET /api/imports/{jobId} for progress and the summary.
+     */
     @PostMapping("/import")
     public ResponseEntity<?> importProducts(@RequestParam("file") MultipartFile file) {
         try {
-            List<Product> imported = productService.importFromExcel(file);
-            return ResponseEntity.ok(imported);
+            ImportJobDTO job = importJobService.submit("products", file, productService::importFromExcel);
+            return ResponseEntity.accepted().body(job);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error importing products: " + e.getMessage());
         }
@@ -2,6 +2,7 @@ package com.pos.controller;
 
 import com.pos.dto.CloseSessionDTO;
 import com.pos.dto.OpenSessionDTO;
+import com.pos.dto.SessionReportDTO;
 import com.pos.model.PosSession;
 import com.pos.service.SessionService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +38,17 @@ public class SessionController {
             .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * X report for an open session, Z report for a closed one
+     * GET /api/sessions/{id}/report
+     */
+    @GetMapping("/{id}/report")
+    public ResponseEntity<SessionReportDTO> getReport(@PathVariable Long id) {
+        return sessionService.getReport(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Check if cashier has an active session
      * GET /api/sessions/check/{cashierName}
@@ -46,16 +58,9 @@ public class SessionController {
     public ResponseEntity<Map<String, Object>> checkActiveSession(@PathVariable String cashierName) {
         Map<String, Object> response = new HashMap<>();
         
-        boolean hasActive = sessionService.hasActiveSession(cashierName);
-        response.put("hasActiveSession", hasActive);
-        
-        if (hasActive) {
-            sessionService.getActiveSession(cashierName).ifPresent(session -> {
-                response.put("session", session);
-            });
-        } else {
-            response.put("session", null);
-        }
+        PosSession session = sessionService.getActiveSession(cashierName).orElse(null);
+        response.put("hasActiveSession", session != null);
+        response.put("session", session);
         
         return ResponseEntity.ok(response);
     }
@@ -81,13 +86,11 @@ public class SessionController {
     @PostMapping("/open")
     public ResponseEntity<?> openSession(@RequestBody OpenSessionDTO dto) {
         try {
-            PosSession session = sessionService.openSession(dto);
-            
-            // Check if this was an existing session
-            boolean isExisting = sessionService.hasActiveSession(dto.getCashierName());
+            SessionService.OpenedSession opened = sessionService.openOrResume(dto);
+            boolean isExisting = opened.existing();
             
             Map<String, Object> response = new HashMap<>();
-            response.put("session", session);
+            response.put("session", opened.session());
             response.put("isExistingSession", isExisting);
             response.put("message", isExisting ? 
                 "Continuing existing active session" : 
@@ -99,6 +102,18 @@ public class SessionController {
         }
     }
 
+    /**
+     * Close every open session (end of day)
+     * POST /api/sessions/close-all
+     * Body (optional): { "notes": "..." }
+     * Returns: { "closed": n, "sessions": [...] }
+     */
+    @PostMapping("/close-all")
+    public ResponseEntity<?> closeAllSessions(@RequestBody(required = false) CloseSessionDTO dto) {
+        List<PosSession> closed = sessionService.closeAllSessions(dto != null ? dto.getNotes() : null);
+        return ResponseEntity.ok(Map.of("closed", closed.size(), "sessions", closed));
+    }
+
     @PostMapping("/{id}/close")
     public ResponseEntity<PosSession> closeSession(@PathVariable Long id, @RequestBody CloseSessionDTO dto) {
         try {
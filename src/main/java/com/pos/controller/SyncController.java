@@ -0,0 +1,67 @@
+package com.pos.controller;
+
+import com.pos.dto.SyncAckDTO;
+import com.pos.service.OrderSyncService;
+import com.pos.service.OrderSyncService.Lease;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class SyncController {
+
+    private final OrderSyncService syncService;
+
+    /**
+     * Lease the oldest unsynced orders
+     * POST /api/sync/claim?limit=500
+     * Returns: { "leaseId", "leasedUntil", "count", "draft": false, "orders": [...],
+     *            "returns": [...], "orderIds": [...] }
+     * Orders not acked before leasedUntil can be claimed again.
+     */
+    @PostMapping("/claim")
+    public ResponseEntity<StreamingResponseBody> claim(@RequestParam(defaultValue = "500") int limit) {
+        Lease lease = syncService.claim(limit);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> syncService.writePayload(lease, out));
+    }
+
+    /**
+     * Mark orders of a lease synced
+     * POST /api/sync/ack
+     * Body: { "leaseId": "...", "orderIds": [the claim's orderIds, or a subset] }
+     * Only the listed orders are acked: a leased order that was left out of the payload
+     * must not be marked synced.
+     */
+    @PostMapping("/ack")
+    public ResponseEntity<?> ack(@RequestBody SyncAckDTO dto) {
+        if (dto.getLeaseId() == null || dto.getLeaseId().isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "leaseId is required"));
+        }
+        if (dto.getOrderIds() == null || dto.getOrderIds().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "orderIds is required (the orderIds of the claim)"));
+        }
+        return ResponseEntity.ok(Map.of("acked", syncService.ack(dto.getLeaseId(), dto.getOrderIds())));
+    }
+
+    /**
+     * Hand a lease's orders back for the next claim (e.g. Odoo rejected the batch)
+     * POST /api/sync/nack
+     * Body: { "leaseId": "...", "orderIds": [optional subset] }
+     */
+    @PostMapping("/nack")
+    public ResponseEntity<?> nack(@RequestBody SyncAckDTO dto) {
+        if (dto.getLeaseId() == null || dto.getLeaseId().isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "leaseId is required"));
+        }
+        return ResponseEntity.ok(Map.of("released", syncService.nack(dto.getLeaseId(), dto.getOrderIds())));
+    }
+}
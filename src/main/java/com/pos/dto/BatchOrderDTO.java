@@ -0,0 +1,18 @@
+package com.pos.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * One queued order replayed through POST /api/orders/batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderDTO {
+    private Long sessionId;
+    private String clientRef;       // terminal-side id, echoed back in the result
+    private String idempotencyKey;  // same meaning as the Idempotency-Key header on single submits
+    private CreateOrderDTO order;
+}
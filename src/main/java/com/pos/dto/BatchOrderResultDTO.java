@@ -0,0 +1,18 @@
+package com.pos.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderResultDTO {
+    private int index;          // position in the request
+    private String clientRef;
+    private Long sessionId;
+    private String status;      // "CREATED", "DUPLICATE" (idempotency key already used) or "FAILED"
+    private Long orderId;
+    private String orderNumber;
+    private String error;
+}
@@ -0,0 +1,23 @@
+package com.pos.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A sale cart as checkout would price it: each line with its catalog price and the
+ * loyalty discount, reward flag and promotion decided server-side, plus the totals.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartEvaluationDTO {
+    private List<CartItemDTO> items;
+    private BigDecimal subtotal;
+    private BigDecimal discountAmount;
+    private BigDecimal taxAmount;
+    private BigDecimal totalAmount;
+}
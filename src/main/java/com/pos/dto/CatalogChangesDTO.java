@@ -0,0 +1,17 @@
+package com.pos.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangesDTO {
+    private List<ProductSnapshot> upserts;   // active products created or changed since the cursor
+    private List<String> deactivated;        // barcodes deactivated since the cursor
+    private String cursor;                   // pass back as ?since= for the next page
+    private boolean hasMore;                 // true when another page is ready right away
+}
@@ -0,0 +1,30 @@
+package com.pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * State of one background import at the time it was read, as returned by
+ * GET /api/imports/{jobId}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDTO {
+    private String jobId;
+    private String type;
+    private String fileName;
+    private String status;  // QUEUED, RUNNING, COMPLETED or FAILED
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private int rowsProcessed;
+    private int errorCount;
+    private List<String> errors;
+    private double rowsPerSecond;  // since the job started, up to now while running
+    private ImportResultDTO result;
+}
@@ -0,0 +1,26 @@
+package com.pos.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResultDTO {
+    private int rows;       // data rows read (header excluded)
+    private int inserted;
+    private int updated;
+    private int unchanged;  // content hash matched, row left untouched
+    private int skipped;    // rows without a barcode
+    private int failed;     // rows in chunks that still failed after retries
+
+    public void add(ImportResultDTO other) {
+        rows += other.rows;
+        inserted += other.inserted;
+        updated += other.updated;
+        unchanged += other.unchanged;
+        skipped += other.skipped;
+        failed += other.failed;
+    }
+}
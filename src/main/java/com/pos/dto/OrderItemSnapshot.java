@@ -0,0 +1,57 @@
+package com.pos.dto;
+
+import com.pos.model.OrderItem;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of an {@link OrderItem}, product included. Serializes to the same JSON
+ * shape as the entity.
+ */
+@Value
+public class OrderItemSnapshot {
+    Long id;
+    ProductSnapshot product;
+    String productBarcode;
+    String productName;
+    Integer quantity;
+    BigDecimal unitPrice;
+    BigDecimal subtotal;
+    BigDecimal discount;
+    BigDecimal taxRate;
+    BigDecimal taxAmount;
+    BigDecimal totalPrice;
+    Integer freeItems;
+    String promotionName;
+    String promotionApplied;
+    LocalDateTime createdAt;
+    // The entity's backward compatibility getters
+    BigDecimal discountAmount;
+    BigDecimal totalAmount;
+    boolean reward;
+
+    public static OrderItemSnapshot of(OrderItem item) {
+        return new OrderItemSnapshot(
+                item.getId(),
+                item.getProduct() != null ? ProductSnapshot.of(item.getProduct()) : null,
+                item.getProductBarcode(),
+                item.getProductName(),
+                item.getQuantity(),
+                item.getUnitPrice(),
+                item.getSubtotal(),
+                item.getDiscount(),
+                item.getTaxRate(),
+                item.getTaxAmount(),
+                item.getTotalPrice(),
+                item.getFreeItems(),
+                item.getPromotionName(),
+                item.getPromotionApplied(),
+                item.getCreatedAt(),
+                item.getDiscount(),
+                item.getTotalPrice(),
+                item.isReward()
+        );
+    }
+}
@@ -4,6 +4,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -15,4 +17,10 @@ public class OrderSearchDTO {
     private Double totalAmountMin;
     private Double totalAmountMax;
     private String orderType; // SALE or RETURN
+    private Long sessionId;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+
+    private String cursor;    // from the previous page; omit for the newest orders
+    private Integer limit;    // page size, default 50
 }
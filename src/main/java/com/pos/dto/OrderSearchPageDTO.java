@@ -0,0 +1,16 @@
+package com.pos.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSearchPageDTO {
+    private List<OrderSummaryDTO> orders; // newest first
+    private String cursor;        // pass back as "cursor" for the next page; null when there is none
+    private boolean hasMore;
+}
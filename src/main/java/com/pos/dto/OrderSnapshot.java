@@ -0,0 +1,67 @@
+package com.pos.dto;
+
+import com.pos.model.Order;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable copy of an {@link Order} and its items, taken while they are loaded. This is
+ * what createOrder answers and what the idempotency cache keeps, so a retry never touches
+ * a detached entity's lazy associations. Serializes to the same JSON shape as the entity.
+ */
+@Value
+public class OrderSnapshot {
+    Long id;
+    String orderNumber;
+    String idempotencyKey;
+    Long sessionId;
+    String cashierName;
+    String customerName;
+    String customerPhone;
+    String customerVat;
+    List<OrderItemSnapshot> items;
+    BigDecimal subtotal;
+    BigDecimal discountAmount;
+    BigDecimal taxAmount;
+    BigDecimal totalAmount;
+    Order.PaymentMethod paymentMethod;
+    Order.OrderStatus status;
+    Order.OrderType orderType;
+    String originalOrderNumber;
+    String returnReason;
+    boolean syncStatus;
+    String notes;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+
+    public static OrderSnapshot of(Order order) {
+        return new OrderSnapshot(
+                order.getId(),
+                order.getOrderNumber(),
+                order.getIdempotencyKey(),
+                // The session's id is known without loading it (the column mapping is read-only)
+                order.getSession() != null ? order.getSession().getId() : order.getSessionId(),
+                order.getCashierName(),
+                order.getCustomerName(),
+                order.getCustomerPhone(),
+                order.getCustomerVat(),
+                order.getItems().stream().map(OrderItemSnapshot::of).toList(),
+                order.getSubtotal(),
+                order.getDiscountAmount(),
+                order.getTaxAmount(),
+                order.getTotalAmount(),
+                order.getPaymentMethod(),
+                order.getStatus(),
+                order.getOrderType(),
+                order.getOriginalOrderNumber(),
+                order.getReturnReason(),
+                order.isSyncStatus(),
+                order.getNotes(),
+                order.getCreatedAt(),
+                order.getUpdatedAt()
+        );
+    }
+}
@@ -0,0 +1,42 @@
+package com.pos.dto;
+
+import com.pos.model.Order;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order header for listings, read as a projection: no items, no order JSON, no lazy loads.
+ * Full orders come from GET /api/orders/{id}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDTO {
+    private Long id;
+    private String orderNumber;
+    private Long sessionId;
+    private String cashierName;
+    private String customerName;
+    private String customerPhone;
+    private String customerVat;
+    private BigDecimal subtotal;
+    private BigDecimal discountAmount;
+    private BigDecimal taxAmount;
+    private BigDecimal totalAmount;
+    private Order.PaymentMethod paymentMethod;
+    private Order.OrderStatus status;
+    private Order.OrderType orderType;
+    private String originalOrderNumber;
+    private boolean syncStatus;
+    private LocalDateTime createdAt;
+
+    // Constructor-expression select list, in constructor order
+    public static final String SELECT = "SELECT new com.pos.dto.OrderSummaryDTO(o.id, o.orderNumber, o.sessionId, "
+            + "o.cashierName, o.customerName, o.customerPhone, o.customerVat, o.subtotal, o.discountAmount, "
+            + "o.taxAmount, o.totalAmount, o.paymentMethod, o.status, o.orderType, o.originalOrderNumber, "
+            + "o.syncStatus, o.createdAt) FROM Order o ";
+}
@@ -0,0 +1,54 @@
+package com.pos.dto;
+
+import com.pos.model.Product;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of a {@link Product} row as held by the in-memory catalog index.
+ * Serializes to the same JSON shape as the entity.
+ */
+@Value
+public class ProductSnapshot {
+    Long id;
+    String barcode;
+    String name;
+    String description;
+    BigDecimal price;
+    Integer stock;
+    String category;
+    BigDecimal taxRate;
+    Boolean active;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(
+                product.getId(),
+                product.getBarcode(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getStock(),
+                product.getCategory(),
+                product.getTaxRate(),
+                product.getActive(),
+                product.getCreatedAt(),
+                product.getUpdatedAt()
+        );
+    }
+
+    public ProductSnapshot withStock(Integer stock, LocalDateTime updatedAt) {
+        return new ProductSnapshot(id, barcode, name, description, price, stock, category, taxRate, active, createdAt, updatedAt);
+    }
+
+    /**
+     * Detached entity carrying this snapshot's state. Suitable as the target of a
+     * many-to-one association (only the id is written) without loading the row.
+     */
+    public Product toEntity() {
+        return new Product(id, barcode, name, description, price, stock, category, taxRate, active, null, createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,37 @@
+package com.pos.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionReportDTO {
+    private String reportType;               // "X" while the session is open, "Z" once closed
+    private Long sessionId;
+    private Integer sessionNumber;
+    private String cashierName;
+    private LocalDateTime openedAt;
+    private LocalDateTime closedAt;
+
+    private BigDecimal grossSales;           // completed sales
+    private BigDecimal returnsTotal;         // negative
+    private BigDecimal netSales;             // grossSales + returnsTotal
+    private Integer saleCount;
+    private Integer returnCount;
+    private BigDecimal taxTotal;             // net of returns
+    private BigDecimal discountTotal;        // net of returns
+
+    private BigDecimal cashTotal;
+    private BigDecimal cardTotal;
+    private BigDecimal otherTotal;
+
+    private BigDecimal openingCash;
+    private BigDecimal expectedCash;         // openingCash + cashTotal
+    private BigDecimal closingCash;          // counted at close, null while open
+    private BigDecimal cashDifference;       // closingCash - expectedCash, null while open
+}
@@ -0,0 +1,15 @@
+package com.pos.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncAckDTO {
+    private String leaseId;
+    private List<Long> orderIds;   // ack: required, the orderIds of the claim; nack: optional, omit for all
+}
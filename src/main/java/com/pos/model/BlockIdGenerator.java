@@ -0,0 +1,58 @@
+package com.pos.model;
+
+import com.pos.service.IdBlockAllocator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.resource.beans.container.spi.BeanContainer;
+import org.hibernate.resource.beans.internal.FallbackBeanInstanceProducer;
+import org.hibernate.resource.beans.spi.ManagedBeanRegistry;
+import org.hibernate.service.ServiceRegistry;
+
+import java.lang.reflect.Member;
+
+/**
+ * Id generator behind {@link BlockSequence}. Hibernate instantiates it itself; the
+ * allocator is the application's singleton, looked up in Hibernate's bean container
+ * (Spring's, under Spring Boot).
+ */
+public class BlockIdGenerator implements IdentifierGenerator {
+
+    // Spring's own singleton rather than a fresh instance per lookup (JPA's default)
+    private static final BeanContainer.LifecycleOptions SHARED = new BeanContainer.LifecycleOptions() {
+        @Override
+        public boolean canUseCachedReferences() {
+            return true;
+        }
+
+        @Override
+        public boolean useJpaCompliantCreation() {
+            return false;
+        }
+    };
+
+    private final String name;
+    private final int blockSize;
+    private final IdBlockAllocator allocator;
+
+    public BlockIdGenerator(BlockSequence config, Member member, CustomIdGeneratorCreationContext context) {
+        this.name = config.name();
+        this.blockSize = config.blockSize();
+        this.allocator = allocator(context.getServiceRegistry());
+        allocator.declare(name, blockSize);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return allocator.next(name, blockSize);
+    }
+
+    private static IdBlockAllocator allocator(ServiceRegistry serviceRegistry) {
+        BeanContainer container = serviceRegistry.getService(ManagedBeanRegistry.class).getBeanContainer();
+        if (container == null) {
+            throw new IllegalStateException("No bean container to resolve IdBlockAllocator from");
+        }
+        return container.getBean(IdBlockAllocator.class, SHARED, FallbackBeanInstanceProducer.INSTANCE)
+                .getBeanInstance();
+    }
+}
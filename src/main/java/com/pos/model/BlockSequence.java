@@ -0,0 +1,23 @@
+package com.pos.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates the id from a hi/lo block sequence in {@code id_blocks}. Unlike IDENTITY,
+ * the id is known before the INSERT, so Hibernate can batch the inserts.
+ */
+@IdGeneratorType(BlockIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface BlockSequence {
+
+    /** Row name in {@code id_blocks}. */
+    String name();
+
+    int blockSize() default 100;
+}
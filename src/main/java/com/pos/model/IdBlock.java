@@ -0,0 +1,24 @@
+package com.pos.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * High-water mark of a block-allocated sequence (hi/lo). Each node reserves a
+ * block of values by bumping {@code nextValue} and then hands them out from memory.
+ */
+@Entity
+@Table(name = "id_blocks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdBlock {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+}
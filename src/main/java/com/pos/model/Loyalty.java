@@ -27,7 +27,7 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class Loyalty {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockSequence(name = "loyalty_programs", blockSize = 100)
     private Long id;
 
     @Column(nullable = false)
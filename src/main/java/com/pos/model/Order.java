@@ -7,7 +7,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.ToString;
-import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -21,23 +20,33 @@ import java.util.List;
     @Index(name = "idx_session_id", columnList = "session_id"),
     @Index(name = "idx_order_status", columnList = "status"),
     @Index(name = "idx_order_created_at", columnList = "created_at"),
+    @Index(name = "idx_order_created_id", columnList = "created_at, id"),
     @Index(name = "idx_payment_method", columnList = "payment_method"),
     @Index(name = "idx_customer_phone", columnList = "customer_phone"),
     @Index(name = "idx_customer_vat", columnList = "customer_vat"),
-    @Index(name = "idx_order_type", columnList = "order_type")
+    @Index(name = "idx_customer_phone_rev", columnList = "customer_phone_rev"),
+    @Index(name = "idx_customer_vat_rev", columnList = "customer_vat_rev"),
+    @Index(name = "idx_customer_name", columnList = "customer_name"),
+    @Index(name = "idx_order_type", columnList = "order_type"),
+    @Index(name = "idx_order_sync_claim", columnList = "sync_status, created_at, id"),
+    @Index(name = "idx_order_sync_lease", columnList = "sync_lease_id")
 })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = {"session", "items"})
+@ToString(exclude = {"session", "items", "orderJson", "orderJsonGzip"})
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockSequence(name = "orders", blockSize = 100)
     private Long id;
 
     @Column(name = "order_number", unique = true, nullable = false, length = 50)
     private String orderNumber;
 
+    // Client-supplied key (Idempotency-Key header); a retried submission returns the stored order
+    @Column(name = "idempotency_key", unique = true, length = 100)
+    private String idempotencyKey;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "session_id", nullable = false)
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
@@ -60,6 +69,15 @@ public class Order {
     @Column(name = "customer_vat", length = 50)
     private String customerVat;
 
+    // Reversed copies, so "ends with" searches (last digits) become index-friendly prefix matches
+    @Column(name = "customer_phone_rev", length = 50)
+    @JsonIgnore
+    private String customerPhoneReversed;
+
+    @Column(name = "customer_vat_rev", length = 50)
+    @JsonIgnore
+    private String customerVatReversed;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnoreProperties({"order"})
     private List<OrderItem> items = new ArrayList<>();
@@ -96,18 +114,41 @@ public class Order {
     @Column(name = "return_reason", length = 500)
     private String returnReason;
 
-    // JSON storage for order data in specified format
+    // Odoo sync document, compact and gzipped (see OrderJsonService). Written after the
+    // sale, on first read or by the background fill, never in the order transaction.
+    // Lazy columns need the build's bytecode enhancement.
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "order_json_gz", columnDefinition = "MEDIUMBLOB")
+    @JsonIgnore
+    private byte[] orderJsonGzip;
+
+    // Pretty-printed document stored by earlier versions; still served for those rows
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "order_json", columnDefinition = "TEXT")
+    @JsonIgnore
     private String orderJson;
 
     // Sync status - tracks if order has been sent to backend
     @Column(name = "sync_status", nullable = false)
     private boolean syncStatus = false;
 
+    // Outbox lease: set while a sync agent holds the order (see POST /api/sync/claim)
+    @Column(name = "sync_lease_id", length = 36)
+    @JsonIgnore
+    private String syncLeaseId;
+
+    @Column(name = "sync_leased_until")
+    @JsonIgnore
+    private LocalDateTime syncLeasedUntil;
+
+    @Column(name = "sync_attempts", nullable = false)
+    @JsonIgnore
+    private int syncAttempts = 0;
+
     @Column(columnDefinition = "TEXT")
     private String notes;
 
-    @CreationTimestamp
+    // Set on insert unless already set (journaled orders keep the time of sale)
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
@@ -115,6 +156,22 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @PrePersist
+    void beforeInsert() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+        fillReversedColumns();
+    }
+
+    @PreUpdate
+    void fillReversedColumns() {
+        customerPhoneReversed = reverse(customerPhone);
+        customerVatReversed = reverse(customerVat);
+    }
+
+    public static String reverse(String value) {
+        return value != null ? new StringBuilder(value.trim()).reverse().toString() : null;
+    }
+
     public enum PaymentMethod {
         CASH, CARD, OTHER
     }
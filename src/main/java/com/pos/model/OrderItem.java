@@ -24,7 +24,7 @@ import java.time.LocalDateTime;
 @ToString(exclude = {"order", "product"})
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @BlockSequence(name = "order_items", blockSize = 1000)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -1,10 +1,12 @@
 package com.pos.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -14,10 +16,14 @@ import java.time.LocalDateTime;
     @Index(name = "idx_cashier", columnList = "cashier_name"),
     @Index(name = "idx_status", columnList = "status"),
     @Index(name = "idx_opened_at", columnList = "opened_at")
+}, uniqueConstraints = {
+    // Session numbers come from MAX + 1; two nodes picking the same one collide here
+    @UniqueConstraint(name = "uk_cashier_session_number", columnNames = {"cashier_name", "session_number"})
 })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@DynamicUpdate // running totals are bumped in place by SessionTotals; never write back stale copies
 public class PosSession {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -29,6 +35,11 @@ public class PosSession {
     @Column(name = "cashier_name", nullable = false)
     private String cashierName;
 
+    // Cashier name while OPEN, null once closed; the unique index allows one open session per cashier
+    @Column(name = "open_cashier", unique = true)
+    @JsonIgnore
+    private String openCashier;
+
     @Column(name = "employee_id", length = 50)
     private String employeeId; // Reference to employee who opened this session
 
@@ -38,12 +49,38 @@ public class PosSession {
     @Column(name = "closing_cash", precision = 10, scale = 2)
     private BigDecimal closingCash;
 
+    // Completed sales; returns are kept apart in returnsTotal
     @Column(name = "total_sales", nullable = false, precision = 12, scale = 2)
     private BigDecimal totalSales = BigDecimal.ZERO;
 
+    // All orders, sales and returns
     @Column(name = "transaction_count", nullable = false)
     private Integer transactionCount = 0;
 
+    // Returns (negative amounts)
+    @Column(name = "returns_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal returnsTotal = BigDecimal.ZERO;
+
+    @Column(name = "return_count", nullable = false)
+    private Integer returnCount = 0;
+
+    // Net of returns
+    @Column(name = "tax_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal taxTotal = BigDecimal.ZERO;
+
+    @Column(name = "discount_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal discountTotal = BigDecimal.ZERO;
+
+    // Running totals per payment method (returns count negative)
+    @Column(name = "cash_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal cashTotal = BigDecimal.ZERO;
+
+    @Column(name = "card_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal cardTotal = BigDecimal.ZERO;
+
+    @Column(name = "other_total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal otherTotal = BigDecimal.ZERO;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private SessionStatus status = SessionStatus.OPEN;
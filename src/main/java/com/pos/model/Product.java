@@ -1,5 +1,6 @@
 package com.pos.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,7 +15,8 @@ import java.time.LocalDateTime;
 @Table(name = "products", indexes = {
     @Index(name = "idx_barcode", columnList = "barcode"),
     @Index(name = "idx_category", columnList = "category"),
-    @Index(name = "idx_active", columnList = "active")
+    @Index(name = "idx_active", columnList = "active"),
+    @Index(name = "idx_product_updated_at", columnList = "updated_at, id")
 })
 @Data
 @NoArgsConstructor
@@ -48,6 +50,11 @@ public class Product {
     @Column(nullable = false)
     private Boolean active = true;
 
+    // SHA-256 of the imported fields; lets bulk imports skip rows that did not change
+    @JsonIgnore
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -55,4 +62,13 @@ public class Product {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    /**
+     * A row changed outside the importer (edit, delete) no longer matches its sheet row,
+     * so the next import must write it again.
+     */
+    @PreUpdate
+    void clearContentHash() {
+        contentHash = null;
+    }
 }
@@ -0,0 +1,45 @@
+package com.pos.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+/**
+ * Plain JDBC reads behind the catalog snapshot: a cheap version probe and a
+ * forward-only scan of the active products that never materialises entities.
+ */
+@Repository
+public class CatalogSnapshotRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CatalogSnapshotRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+    }
+
+    /**
+     * Row count plus newest updated_at of every table in the snapshot. Any insert,
+     * update or soft delete through the application changes at least one of them.
+     */
+    public String currentVersion() {
+        return jdbcTemplate.queryForObject(
+                "SELECT CONCAT_WS('|',"
+                        + " (SELECT COUNT(*) FROM products), (SELECT MAX(updated_at) FROM products),"
+                        + " (SELECT COUNT(*) FROM loyalty_programs), (SELECT MAX(updated_at) FROM loyalty_programs),"
+                        + " (SELECT COUNT(*) FROM promotions), (SELECT MAX(updated_at) FROM promotions))",
+                String.class);
+    }
+
+    /**
+     * Columns, in order: id, barcode, name, description, price, stock, category, tax_rate.
+     */
+    public void forEachActiveProduct(RowCallbackHandler handler) {
+        jdbcTemplate.query(
+                "SELECT id, barcode, name, description, price, stock, category, tax_rate"
+                        + " FROM products WHERE active = TRUE ORDER BY id",
+                handler);
+    }
+}
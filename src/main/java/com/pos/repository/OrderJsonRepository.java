@@ -0,0 +1,59 @@
+package com.pos.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC access to the stored Odoo sync document of an order, so reading or filling it
+ * never loads (or dirties) the order entity.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderJsonRepository {
+
+    /**
+     * The order's document: gzipped compact JSON, or the legacy pretty-printed text of
+     * rows written by earlier versions. Both are null until the document is generated.
+     */
+    public record Stored(byte[] gzip, String legacy) {
+        public boolean isMissing() {
+            return gzip == null && legacy == null;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Empty if the order does not exist.
+     */
+    public Optional<Stored> find(Long orderId) {
+        return jdbcTemplate.query("SELECT order_json_gz, order_json FROM orders WHERE id = ?",
+                (rs, i) -> new Stored(rs.getBytes(1), rs.getString(2)), orderId).stream().findFirst();
+    }
+
+    /**
+     * Unsynced orders still without a document, oldest first.
+     */
+    public List<Long> findUnsyncedWithoutJson(int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE sync_status = FALSE AND order_json_gz IS NULL AND order_json IS NULL"
+                        + " ORDER BY created_at, id LIMIT " + limit, Long.class);
+    }
+
+    /**
+     * Store generated documents in one batch. A row that got its document meanwhile (a
+     * concurrent reader) keeps it; both were generated from the same order anyway.
+     */
+    public void store(Map<Long, byte[]> gzipById) {
+        if (gzipById.isEmpty()) return;
+        List<Object[]> args = new ArrayList<>(gzipById.size());
+        gzipById.forEach((id, gzip) -> args.add(new Object[]{gzip, id}));
+        jdbcTemplate.batchUpdate("UPDATE orders SET order_json_gz = ? WHERE id = ? AND order_json_gz IS NULL", args);
+    }
+}
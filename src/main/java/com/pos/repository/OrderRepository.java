@@ -1,5 +1,6 @@
 package com.pos.repository;
 
+import com.pos.dto.OrderSummaryDTO;
 import com.pos.model.Order;
 import com.pos.model.Order.OrderType;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +22,15 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findBySessionIdOrderByCreatedAtDesc(Long sessionId);
     
     Optional<Order> findByOrderNumber(String orderNumber);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.product WHERE o.idempotencyKey = :key")
+    Optional<Order> findDetailedByIdempotencyKey(@Param("key") String idempotencyKey);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.product WHERE o.idempotencyKey IN :keys")
+    List<Order> findDetailedByIdempotencyKeyIn(@Param("keys") Collection<String> idempotencyKeys);
+
+    @Query("SELECT o.orderNumber FROM Order o WHERE o.orderNumber IN :orderNumbers")
+    List<String> findExistingOrderNumbers(@Param("orderNumbers") Collection<String> orderNumbers);
     
     // Search by customer phone
     List<Order> findByCustomerPhoneContainingOrderByCreatedAtDesc(String phone);
@@ -38,24 +49,39 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // Search by order type
     List<Order> findByOrderTypeOrderByCreatedAtDesc(OrderType orderType);
     
-    // Complex search query
-    @Query("SELECT o FROM Order o WHERE " +
-           "(:orderNumber IS NULL OR o.orderNumber LIKE %:orderNumber%) AND " +
-           "(:customerPhone IS NULL OR o.customerPhone LIKE %:customerPhone%) AND " +
-           "(:customerName IS NULL OR LOWER(o.customerName) LIKE LOWER(CONCAT('%', :customerName, '%'))) AND " +
-           "(:customerVat IS NULL OR o.customerVat LIKE %:customerVat%) AND " +
-           "(:minAmount IS NULL OR o.totalAmount >= :minAmount) AND " +
-           "(:maxAmount IS NULL OR o.totalAmount <= :maxAmount) AND " +
-           "(:orderType IS NULL OR o.orderType = :orderType) " +
-           "ORDER BY o.createdAt DESC")
-    List<Order> searchOrders(@Param("orderNumber") String orderNumber,
-                            @Param("customerPhone") String customerPhone,
-                            @Param("customerName") String customerName,
-                            @Param("customerVat") String customerVat,
-                            @Param("minAmount") BigDecimal minAmount,
-                            @Param("maxAmount") BigDecimal maxAmount,
-                            @Param("orderType") OrderType orderType);
-    
+    // Session close-out figures straight from the orders, one row per session. Columns as in
+    // PosSessionRepository.findTotals: sessionId, sales, count, returns, returnCount, tax,
+    // discount, cash, card, other
+    @Query("SELECT o.sessionId, " +
+           "COALESCE(SUM(CASE WHEN o.orderType = 'SALE' AND o.status = 'COMPLETED' THEN o.totalAmount ELSE 0 END), 0), " +
+           "COUNT(o), " +
+           "COALESCE(SUM(CASE WHEN o.orderType = 'RETURN' THEN o.totalAmount ELSE 0 END), 0), " +
+           "SUM(CASE WHEN o.orderType = 'RETURN' THEN 1 ELSE 0 END), " +
+           "COALESCE(SUM(o.taxAmount), 0), COALESCE(SUM(o.discountAmount), 0), " +
+           "COALESCE(SUM(CASE WHEN o.paymentMethod = 'CASH' THEN o.totalAmount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN o.paymentMethod = 'CARD' THEN o.totalAmount ELSE 0 END), 0), " +
+           "COALESCE(SUM(CASE WHEN o.paymentMethod = 'OTHER' THEN o.totalAmount ELSE 0 END), 0) " +
+           "FROM Order o WHERE o.sessionId IN :sessionIds GROUP BY o.sessionId")
+    List<Object[]> sumBySession(@Param("sessionIds") Collection<Long> sessionIds);
+
+    // Listings as projections (see OrderSummaryDTO), newest first
+    @Query(OrderSummaryDTO.SELECT + "WHERE o.sessionId = :sessionId ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findSummariesBySessionId(@Param("sessionId") Long sessionId);
+
+    @Query(OrderSummaryDTO.SELECT + "WHERE o.syncStatus = false ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findUnsyncedSummaries();
+
+    // One order with its items and their products in a single statement
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.product WHERE o.id = :id")
+    Optional<Order> findDetailedById(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.product WHERE o.orderNumber = :orderNumber")
+    Optional<Order> findDetailedByOrderNumber(@Param("orderNumber") String orderNumber);
+
+    // Orders with their items; item products stay unloaded (their ids come from the FK)
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
     // Find orders not synced
     List<Order> findBySyncStatusFalseOrderByCreatedAtDesc();
 }
@@ -0,0 +1,95 @@
+package com.pos.repository;
+
+import com.pos.dto.OrderSummaryDTO;
+import com.pos.model.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Order search built from only the criteria that were supplied, so each query can use
+ * the matching index instead of a catch-all {@code (:x IS NULL OR ...)} plan. Text
+ * criteria are prefix matches; phone and VAT also match as suffixes through their
+ * reversed columns. Results are keyset pages, newest first by (createdAt, id).
+ */
+@Repository
+public class OrderSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public record Criteria(String orderNumber, String customerPhone, String customerName, String customerVat,
+                           BigDecimal minAmount, BigDecimal maxAmount, Order.OrderType orderType, Long sessionId,
+                           LocalDateTime createdFrom, LocalDateTime createdTo) {
+    }
+
+    /**
+     * Up to {@code limit} order summaries older than the (createdAt, id) position, or the
+     * newest ones when {@code beforeCreatedAt} is null.
+     */
+    public List<OrderSummaryDTO> search(Criteria c, LocalDateTime beforeCreatedAt, Long beforeId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummaryDTO> query = cb.createQuery(OrderSummaryDTO.class);
+        Root<Order> o = query.from(Order.class);
+
+        List<Predicate> where = new ArrayList<>();
+        if (hasText(c.orderNumber())) {
+            where.add(startsWith(cb, o.get("orderNumber"), c.orderNumber()));
+        }
+        if (hasText(c.customerPhone())) {
+            where.add(prefixOrSuffix(cb, o.get("customerPhone"), o.get("customerPhoneReversed"), c.customerPhone()));
+        }
+        if (hasText(c.customerVat())) {
+            where.add(prefixOrSuffix(cb, o.get("customerVat"), o.get("customerVatReversed"), c.customerVat()));
+        }
+        if (hasText(c.customerName())) {
+            // Case-insensitive under MySQL's default collation without wrapping the column in LOWER()
+            where.add(startsWith(cb, o.get("customerName"), c.customerName()));
+        }
+        if (c.minAmount() != null) where.add(cb.ge(o.get("totalAmount"), c.minAmount()));
+        if (c.maxAmount() != null) where.add(cb.le(o.get("totalAmount"), c.maxAmount()));
+        if (c.orderType() != null) where.add(cb.equal(o.get("orderType"), c.orderType()));
+        if (c.sessionId() != null) where.add(cb.equal(o.get("sessionId"), c.sessionId()));
+        if (c.createdFrom() != null) where.add(cb.greaterThanOrEqualTo(o.get("createdAt"), c.createdFrom()));
+        if (c.createdTo() != null) where.add(cb.lessThan(o.get("createdAt"), c.createdTo()));
+
+        if (beforeCreatedAt != null) {
+            where.add(cb.or(
+                    cb.lessThan(o.get("createdAt"), beforeCreatedAt),
+                    cb.and(cb.equal(o.get("createdAt"), beforeCreatedAt), cb.lessThan(o.get("id"), beforeId))));
+        }
+
+        query.select(cb.construct(OrderSummaryDTO.class, o.get("id"), o.get("orderNumber"), o.get("sessionId"),
+                        o.get("cashierName"), o.get("customerName"), o.get("customerPhone"), o.get("customerVat"),
+                        o.get("subtotal"), o.get("discountAmount"), o.get("taxAmount"), o.get("totalAmount"),
+                        o.get("paymentMethod"), o.get("status"), o.get("orderType"), o.get("originalOrderNumber"),
+                        o.get("syncStatus"), o.get("createdAt")))
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(cb.desc(o.get("createdAt")), cb.desc(o.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static Predicate prefixOrSuffix(CriteriaBuilder cb, Expression<String> column,
+                                            Expression<String> reversed, String value) {
+        return cb.or(startsWith(cb, column, value), startsWith(cb, reversed, Order.reverse(value)));
+    }
+
+    private static Predicate startsWith(CriteriaBuilder cb, Expression<String> column, String value) {
+        String escaped = value.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return cb.like(column, escaped + "%", '\\');
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,119 @@
+package com.pos.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Set-based JDBC access to the order sync outbox: the unsynced rows of {@code orders}.
+ * Their order JSON is not written with the order; {@link com.pos.service.OrderJsonService}
+ * fills it in later, in the background or when a claim first reads it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderSyncRepository {
+
+    // Rows per round trip where the driver honours a fetch size (not MySQL, see forEachLeased)
+    private static final int FETCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Lease up to {@code limit} of the oldest unsynced orders that are not leased (or
+     * whose lease expired) to {@code leaseId}. Returns how many were leased.
+     */
+    public int claim(String leaseId, LocalDateTime now, LocalDateTime leasedUntil, int limit) {
+        List<Long> candidates = jdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE sync_status = FALSE"
+                        + " AND (sync_leased_until IS NULL OR sync_leased_until < ?)"
+                        + " ORDER BY created_at, id LIMIT " + limit,
+                Long.class, Timestamp.valueOf(now));
+        if (candidates.isEmpty()) return 0;
+
+        // Re-checked per row: a concurrent claim may have leased some candidates meanwhile
+        List<Object> args = new ArrayList<>(List.of(leaseId, Timestamp.valueOf(leasedUntil), Timestamp.valueOf(now)));
+        args.addAll(candidates);
+        return jdbcTemplate.update(
+                "UPDATE orders SET sync_lease_id = ?, sync_leased_until = ?, sync_attempts = sync_attempts + 1"
+                        + " WHERE sync_status = FALSE AND (sync_leased_until IS NULL OR sync_leased_until < ?)"
+                        + " AND id IN (" + placeholders(candidates.size()) + ")",
+                args.toArray());
+    }
+
+    /**
+     * Leased orders whose sync JSON has not been generated yet.
+     */
+    public List<Long> findLeasedWithoutJson(String leaseId) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE sync_lease_id = ? AND sync_status = FALSE"
+                        + " AND order_json_gz IS NULL AND order_json IS NULL", Long.class, leaseId);
+    }
+
+    /**
+     * Stream the leased orders of one type, oldest first.
+     * Columns: id, order_number, order_json_gz, order_json.
+     *
+     * MySQL Connector/J reads the whole result into memory unless the fetch size is
+     * {@code Integer.MIN_VALUE}, which makes it stream row by row; the connection can run
+     * nothing else until the result is consumed, so {@code handler} must not query.
+     */
+    public void forEachLeased(String leaseId, String orderType, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id, order_number, order_json_gz, order_json FROM orders"
+                            + " WHERE sync_lease_id = ? AND sync_status = FALSE AND order_type = ?"
+                            + " ORDER BY created_at, id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(isMysql(con.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : FETCH_SIZE);
+            ps.setString(1, leaseId);
+            ps.setString(2, orderType);
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * Mark the lease's orders (or just {@code orderIds} of them) synced, in one statement.
+     */
+    public int ack(String leaseId, Collection<Long> orderIds) {
+        return release(
+                "UPDATE orders SET sync_status = TRUE, sync_lease_id = NULL, sync_leased_until = NULL"
+                        + " WHERE sync_lease_id = ?", leaseId, orderIds);
+    }
+
+    /**
+     * Give the lease's orders (or just {@code orderIds} of them) back for the next claim.
+     */
+    public int nack(String leaseId, Collection<Long> orderIds) {
+        return release(
+                "UPDATE orders SET sync_lease_id = NULL, sync_leased_until = NULL"
+                        + " WHERE sync_lease_id = ? AND sync_status = FALSE", leaseId, orderIds);
+    }
+
+    private int release(String sql, String leaseId, Collection<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return jdbcTemplate.update(sql, leaseId);
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(leaseId);
+        args.addAll(orderIds);
+        return jdbcTemplate.update(sql + " AND id IN (" + placeholders(orderIds.size()) + ")", args.toArray());
+    }
+
+    private static boolean isMysql(String product) {
+        return product != null && (product.contains("MySQL") || product.contains("MariaDB"));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -3,9 +3,12 @@ package com.pos.repository;
 import com.pos.model.PosSession;
 import com.pos.model.PosSession.SessionStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +28,37 @@ public interface PosSessionRepository extends JpaRepository<PosSession, Long> {
     // Check if cashier has any active session
     @Query("SELECT COUNT(s) > 0 FROM PosSession s WHERE s.cashierName = :cashierName AND s.status = 'OPEN'")
     boolean hasActiveSession(@Param("cashierName") String cashierName);
+
+    // Columns: cashierName, id; oldest first
+    @Query("SELECT s.cashierName, s.id FROM PosSession s WHERE s.status = 'OPEN' ORDER BY s.openedAt, s.id")
+    List<Object[]> findOpenSessionsByCashier();
+
+    @Query("SELECT s.id FROM PosSession s WHERE s.status = 'OPEN'")
+    List<Long> findOpenSessionIds();
+
+    // Relative update used by SessionTotals; never overwrites concurrent increments
+    @Modifying
+    @Query("UPDATE PosSession s SET s.totalSales = s.totalSales + :sales, " +
+           "s.transactionCount = s.transactionCount + :count, " +
+           "s.returnsTotal = s.returnsTotal + :returns, s.returnCount = s.returnCount + :returnCount, " +
+           "s.taxTotal = s.taxTotal + :tax, s.discountTotal = s.discountTotal + :discount, " +
+           "s.cashTotal = s.cashTotal + :cash, s.cardTotal = s.cardTotal + :card, " +
+           "s.otherTotal = s.otherTotal + :other WHERE s.id = :id")
+    int addTotals(@Param("id") Long id,
+                  @Param("sales") BigDecimal sales,
+                  @Param("count") int count,
+                  @Param("returns") BigDecimal returns,
+                  @Param("returnCount") int returnCount,
+                  @Param("tax") BigDecimal tax,
+                  @Param("discount") BigDecimal discount,
+                  @Param("cash") BigDecimal cash,
+                  @Param("card") BigDecimal card,
+                  @Param("other") BigDecimal other);
+
+    // Columns: id, totalSales, transactionCount, returnsTotal, returnCount, taxTotal,
+    // discountTotal, cashTotal, cardTotal, otherTotal
+    @Query("SELECT s.id, s.totalSales, s.transactionCount, s.returnsTotal, s.returnCount, " +
+           "s.taxTotal, s.discountTotal, s.cashTotal, s.cardTotal, s.otherTotal " +
+           "FROM PosSession s WHERE s.id IN :ids")
+    List<Object[]> findTotals(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,136 @@
+package com.pos.repository;
+
+import com.pos.model.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Set-based JDBC writes for product imports. Bypasses the entity manager so a
+ * chunk of rows costs one multi-row statement instead of a SELECT + INSERT/UPDATE
+ * per row (and IDENTITY ids no longer defeat batching).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBulkRepository {
+
+    private static final String COLUMNS =
+            "barcode, name, description, price, stock, category, tax_rate, active, content_hash, created_at, updated_at";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean mysql;
+
+    /**
+     * barcode -> content_hash for the barcodes that already exist (hash may be null for legacy rows).
+     */
+    public Map<String, String> findContentHashes(Collection<String> barcodes) {
+        Map<String, String> hashes = new HashMap<>();
+        if (barcodes.isEmpty()) return hashes;
+
+        String sql = "SELECT barcode, content_hash FROM products WHERE barcode IN ("
+                + String.join(", ", Collections.nCopies(barcodes.size(), "?")) + ")";
+        jdbcTemplate.query(sql, rs -> {
+            hashes.put(rs.getString(1), rs.getString(2));
+        }, barcodes.toArray());
+        return hashes;
+    }
+
+    /**
+     * Write new and changed rows. On MySQL this is a single
+     * INSERT ... ON DUPLICATE KEY UPDATE keyed on the unique barcode; other databases
+     * (H2 in tests) get a multi-row INSERT for new rows plus a batched UPDATE for changed ones.
+     * Existing rows keep their {@code active} flag: sheets have no such column, and a
+     * re-import must not bring back a product that was deleted.
+     */
+    public void upsert(List<Product> inserts, List<Product> updates) {
+        LocalDateTime now = LocalDateTime.now();
+        if (isMysql()) {
+            List<Product> rows = new ArrayList<>(inserts.size() + updates.size());
+            rows.addAll(inserts);
+            rows.addAll(updates);
+            if (rows.isEmpty()) return;
+            jdbcTemplate.update(insertSql(rows.size())
+                    + " ON DUPLICATE KEY UPDATE name = VALUES(name), description = VALUES(description),"
+                    + " price = VALUES(price), stock = VALUES(stock), category = VALUES(category),"
+                    + " tax_rate = VALUES(tax_rate), content_hash = VALUES(content_hash),"
+                    + " updated_at = VALUES(updated_at)",
+                    insertArgs(rows, now));
+            return;
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.update(insertSql(inserts.size()), insertArgs(inserts, now));
+        }
+        if (!updates.isEmpty()) {
+            Timestamp ts = Timestamp.valueOf(now);
+            jdbcTemplate.batchUpdate(
+                    "UPDATE products SET name = ?, description = ?, price = ?, stock = ?, category = ?,"
+                            + " tax_rate = ?, content_hash = ?, updated_at = ? WHERE barcode = ?",
+                    updates.stream().map(p -> new Object[]{
+                            p.getName(), p.getDescription(), p.getPrice(), p.getStock(), p.getCategory(),
+                            p.getTaxRate(), p.getContentHash(), ts, p.getBarcode()
+                    }).toList());
+        }
+    }
+
+    /**
+     * Apply accumulated stock movements (barcode -> signed delta) as relative updates,
+     * so concurrent writers never overwrite each other's counts. The content hash is
+     * cleared: the stock no longer matches the imported sheet, which a re-import resets.
+     * {@code updated_at} moves to {@code now} so the delta feed and the catalog snapshot
+     * version pick the new stock up.
+     */
+    public void applyStockDeltas(Map<String, Long> deltas, LocalDateTime now) {
+        if (deltas.isEmpty()) return;
+        Timestamp ts = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(
+                "UPDATE products SET stock = stock + ?, content_hash = NULL, updated_at = ? WHERE barcode = ?",
+                deltas.entrySet().stream()
+                        .map(e -> new Object[]{e.getValue(), ts, e.getKey()})
+                        .toList());
+    }
+
+    private String insertSql(int rows) {
+        return "INSERT INTO products (" + COLUMNS + ") VALUES "
+                + String.join(", ", Collections.nCopies(rows, ROW_PLACEHOLDERS));
+    }
+
+    private Object[] insertArgs(List<Product> rows, LocalDateTime now) {
+        Timestamp ts = Timestamp.valueOf(now);
+        Object[] args = new Object[rows.size() * 11];
+        int i = 0;
+        for (Product p : rows) {
+            args[i++] = p.getBarcode();
+            args[i++] = p.getName();
+            args[i++] = p.getDescription();
+            args[i++] = p.getPrice();
+            args[i++] = p.getStock();
+            args[i++] = p.getCategory();
+            args[i++] = p.getTaxRate();
+            args[i++] = p.getActive();
+            args[i++] = p.getContentHash();
+            args[i++] = ts;
+            args[i++] = ts;
+        }
+        return args;
+    }
+
+    private boolean isMysql() {
+        Boolean result = mysql;
+        if (result == null) {
+            result = jdbcTemplate.execute((Connection con) -> {
+                String product = con.getMetaData().getDatabaseProductName();
+                return product != null && (product.contains("MySQL") || product.contains("MariaDB"));
+            });
+            mysql = result;
+        }
+        return result;
+    }
+}
@@ -1,15 +1,32 @@
 package com.pos.repository;
 
 import com.pos.model.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findByBarcode(String barcode);
+    List<Product> findByBarcodeIn(Collection<String> barcodes);
     List<Product> findByActiveTrue();
     List<Product> findByCategory(String category);
     boolean existsByBarcode(String barcode);
+
+    // Keyset scan over (updatedAt, id) for delta catalog sync
+    @Query("SELECT p FROM Product p WHERE " +
+           "(p.updatedAt > :since OR (p.updatedAt = :since AND p.id > :afterId)) AND " +
+           "p.updatedAt <= :upTo " +
+           "ORDER BY p.updatedAt ASC, p.id ASC")
+    List<Product> findChangedSince(@Param("since") LocalDateTime since,
+                                   @Param("afterId") Long afterId,
+                                   @Param("upTo") LocalDateTime upTo,
+                                   Pageable pageable);
 }
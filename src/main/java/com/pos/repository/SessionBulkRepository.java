@@ -0,0 +1,55 @@
+package com.pos.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set-based JDBC writes for closing many sessions at once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SessionBulkRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Close the sessions in one batch, setting their totals from
+     * {@link OrderRepository#sumBySession} rows. Sessions already closed are left alone.
+     * Returns the ids that were actually closed.
+     */
+    public List<Long> closeAll(List<Object[]> aggregates, LocalDateTime closedAt, String notes) {
+        List<Long> closed = new ArrayList<>();
+        if (aggregates.isEmpty()) return closed;
+
+        List<Object[]> args = new ArrayList<>(aggregates.size());
+        for (Object[] row : aggregates) {
+            args.add(new Object[]{
+                    row[1], row[2], row[3], row[4], row[5], row[6], row[7], row[8], row[9],
+                    Timestamp.valueOf(closedAt), notes, row[0]});
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE pos_sessions SET total_sales = ?, transaction_count = ?, returns_total = ?, return_count = ?,"
+                        + " tax_total = ?, discount_total = ?, cash_total = ?, card_total = ?, other_total = ?,"
+                        + " status = 'CLOSED', open_cashier = NULL, closed_at = ?, notes = COALESCE(?, notes)"
+                        + " WHERE id = ? AND status = 'OPEN'",
+                args, args.size(), (ps, a) -> {
+                    for (int i = 0; i < a.length; i++) ps.setObject(i + 1, a[i]);
+                });
+
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                // Drivers that rewrite batches may report SUCCESS_NO_INFO (-2) instead of a row count
+                if (count != 0) closed.add((Long) aggregates.get(i)[0]);
+                i++;
+            }
+        }
+        return closed;
+    }
+}
@@ -0,0 +1,98 @@
+package com.pos.service;
+
+import com.pos.repository.PosSessionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Cashier -> open session id, held in memory as a cache of the {@code pos_sessions}
+ * table. Loaded from the database at startup (or on first use, if a request gets in
+ * earlier). A hit only says where to look: callers confirm it against the database and
+ * fall back to a query on a miss, since another backend node may have opened or closed
+ * the session. Opening and closing for one cashier run under that cashier's lock stripe,
+ * so two fast taps on one node cannot both open a session; across nodes the unique
+ * {@code open_cashier} and {@code (cashier_name, session_number)} keys are the backstop.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActiveSessionRegistry {
+
+    private static final int STRIPES = 64;
+
+    private final PosSessionRepository sessionRepository;
+
+    private final Map<String, Long> activeByCashier = new ConcurrentHashMap<>();
+    private final Map<Long, String> cashierBySession = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    private volatile boolean loaded;
+
+    {
+        for (int i = 0; i < STRIPES; i++) locks[i] = new ReentrantLock();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        ensureLoaded();
+    }
+
+    public Optional<Long> activeSessionId(String cashierName) {
+        ensureLoaded();
+        return Optional.ofNullable(activeByCashier.get(cashierName));
+    }
+
+    /**
+     * Cashier of the session if it is open, else empty.
+     */
+    public Optional<String> cashierOfOpenSession(Long sessionId) {
+        ensureLoaded();
+        return Optional.ofNullable(cashierBySession.get(sessionId));
+    }
+
+    /**
+     * Run {@code action} holding the cashier's lock stripe.
+     */
+    public <T> T withCashierLock(String cashierName, Supplier<T> action) {
+        ensureLoaded();
+        ReentrantLock lock = locks[(cashierName.hashCode() & 0x7fffffff) % STRIPES];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void register(String cashierName, Long sessionId) {
+        Long previous = activeByCashier.put(cashierName, sessionId);
+        if (previous != null) cashierBySession.remove(previous);
+        cashierBySession.put(sessionId, cashierName);
+    }
+
+    public void unregister(String cashierName, Long sessionId) {
+        if (cashierName != null) activeByCashier.remove(cashierName, sessionId);
+        cashierBySession.remove(sessionId);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            // Oldest first, so the newest open session wins if a cashier has several
+            for (Object[] row : sessionRepository.findOpenSessionsByCashier()) {
+                Long previous = activeByCashier.put((String) row[0], (Long) row[1]);
+                if (previous != null) cashierBySession.remove(previous);
+                cashierBySession.put((Long) row[1], (String) row[0]);
+            }
+            loaded = true;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.model.Loyalty;
+import com.pos.model.Promotion;
+import com.pos.repository.CatalogSnapshotRepository;
+import com.pos.repository.LoyaltyRepository;
+import com.pos.repository.PromotionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the cold-boot catalog for terminals: active products, loyalties and promotions
+ * in one gzip-compressed JSON document. Each section is written as a field list plus
+ * positional rows, and product categories are dictionary-encoded. The document is built
+ * once per catalog version and served from memory until the version moves.
+ *
+ * Loyalties and promotions are included with their date windows and filtered by the
+ * terminal, so the cached payload does not go stale as the clock moves.
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogSnapshotService {
+
+    public static final int FORMAT = 1;
+
+    public record Snapshot(String version, byte[] gzip) {
+    }
+
+    private final CatalogSnapshotRepository snapshotRepository;
+    private final LoyaltyRepository loyaltyRepository;
+    private final PromotionRepository promotionRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${pos.catalog.sync-lag-ms:5000}")
+    private long syncLagMs;
+
+    private volatile Snapshot cached;
+
+    public String currentVersion() {
+        String probe = snapshotRepository.currentVersion();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(probe.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * The document for {@code version}, as just returned by {@link #currentVersion()}:
+     * the cached one while the version holds, else built now.
+     */
+    public Snapshot getSnapshot(String version) {
+        Snapshot snapshot = cached;
+        if (snapshot != null && snapshot.version().equals(version)) return snapshot;
+
+        synchronized (this) {
+            snapshot = cached;
+            if (snapshot != null && snapshot.version().equals(version)) return snapshot;
+            snapshot = new Snapshot(version, build(version));
+            cached = snapshot;
+            return snapshot;
+        }
+    }
+
+    private byte[] build(String version) {
+        // Rows newer than this may still be followed by late commits; start delta sync here
+        String cursor = KeysetCursor.of(
+                LocalDateTime.now().minus(syncLagMs, ChronoUnit.MILLIS), 0L).encode();
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        try (OutputStream gzip = new GZIPOutputStream(buffer, 8192);
+             JsonGenerator json = objectMapper.getFactory().createGenerator(gzip)) {
+            json.writeStartObject();
+            json.writeNumberField("format", FORMAT);
+            json.writeStringField("version", version);
+            json.writeStringField("cursor", cursor);
+            json.writeStringField("generatedAt", LocalDateTime.now().toString());
+            writeProducts(json);
+            writeLoyalties(json);
+            writePromotions(json);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to build catalog snapshot: " + e.getMessage(), e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void writeProducts(JsonGenerator json) throws IOException {
+        Map<String, Integer> categories = new LinkedHashMap<>();
+
+        json.writeObjectFieldStart("products");
+        writeFields(json, "id", "barcode", "name", "description", "price", "stock", "category", "taxRate");
+        json.writeArrayFieldStart("rows");
+        snapshotRepository.forEachActiveProduct(rs -> {
+            try {
+                json.writeStartArray();
+                json.writeNumber(rs.getLong(1));
+                json.writeString(rs.getString(2));
+                json.writeString(rs.getString(3));
+                json.writeString(rs.getString(4));
+                writeDecimal(json, rs.getBigDecimal(5));
+                json.writeNumber(rs.getInt(6));
+                String category = rs.getString(7);
+                if (category == null) {
+                    json.writeNull();
+                } else {
+                    json.writeNumber(categories.computeIfAbsent(category, c -> categories.size()));
+                }
+                writeDecimal(json, rs.getBigDecimal(8));
+                json.writeEndArray();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write catalog snapshot", e);
+            }
+        });
+        json.writeEndArray();
+        // Category column holds indexes into this list
+        json.writeArrayFieldStart("categories");
+        for (String category : categories.keySet()) {
+            json.writeString(category);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void writeLoyalties(JsonGenerator json) throws IOException {
+        json.writeObjectFieldStart("loyalties");
+        writeFields(json, "id", "name", "type", "triggerProductIds", "rewardProductIds", "minQuantity",
+                "maxQuantity", "rewardQuantity", "discountPercent", "discountAmount", "afterDiscount",
+                "totalPrice", "startDate", "endDate");
+        json.writeArrayFieldStart("rows");
+        for (Loyalty l : loyaltyRepository.findByActiveTrue()) {
+            json.writeStartArray();
+            json.writeNumber(l.getId());
+            json.writeString(l.getName());
+            writeInteger(json, l.getType());
+            json.writeString(l.getTriggerProductIds());
+            json.writeString(l.getRewardProductIds());
+            writeInteger(json, l.getMinQuantity());
+            writeInteger(json, l.getMaxQuantity());
+            writeInteger(json, l.getRewardQuantity());
+            writeDecimal(json, l.getDiscountPercent());
+            writeDecimal(json, l.getDiscountAmount());
+            writeDecimal(json, l.getAfterDiscount());
+            writeDecimal(json, l.getTotalPrice());
+            writeDate(json, l.getStartDate());
+            writeDate(json, l.getEndDate());
+            json.writeEndArray();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void writePromotions(JsonGenerator json) throws IOException {
+        json.writeObjectFieldStart("promotions");
+        writeFields(json, "id", "name", "discountType", "discountValue", "minPurchase", "maxDiscount",
+                "productBarcode", "category", "startDate", "endDate");
+        json.writeArrayFieldStart("rows");
+        for (Promotion p : promotionRepository.findByActiveTrue()) {
+            json.writeStartArray();
+            json.writeNumber(p.getId());
+            json.writeString(p.getName());
+            json.writeString(p.getDiscountType() != null ? p.getDiscountType().name() : null);
+            writeDecimal(json, p.getDiscountValue());
+            writeDecimal(json, p.getMinPurchase());
+            writeDecimal(json, p.getMaxDiscount());
+            json.writeString(p.getProductBarcode());
+            json.writeString(p.getCategory());
+            writeDate(json, p.getStartDate());
+            writeDate(json, p.getEndDate());
+            json.writeEndArray();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private static void writeFields(JsonGenerator json, String... fields) throws IOException {
+        json.writeArrayFieldStart("fields");
+        for (String field : fields) {
+            json.writeString(field);
+        }
+        json.writeEndArray();
+    }
+
+    private static void writeDecimal(JsonGenerator json, BigDecimal value) throws IOException {
+        if (value == null) json.writeNull();
+        else json.writeNumber(value);
+    }
+
+    private static void writeInteger(JsonGenerator json, Integer value) throws IOException {
+        if (value == null) json.writeNull();
+        else json.writeNumber(value);
+    }
+
+    private static void writeDate(JsonGenerator json, LocalDateTime value) throws IOException {
+        json.writeString(value != null ? value.toString() : null);
+    }
+}
@@ -1,9 +1,9 @@
 package com.pos.service;
 
+import com.pos.dto.ImportResultDTO;
 import com.pos.model.Loyalty;
 import com.pos.model.Product;
 import com.pos.repository.LoyaltyRepository;
-import com.pos.repository.ProductRepository;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
@@ -20,51 +20,65 @@ import java.util.List;
 @Service
 public class ExcelImportService {
 
-    private final ProductRepository productRepository;
     private final LoyaltyRepository loyaltyRepository;
+    private final ProductImportWriter importWriter;
+    private final ImportPipeline importPipeline;
 
-    public ExcelImportService(ProductRepository productRepository, LoyaltyRepository loyaltyRepository) {
-        this.productRepository = productRepository;
+    public ExcelImportService(LoyaltyRepository loyaltyRepository, ProductImportWriter importWriter,
+                              ImportPipeline importPipeline) {
         this.loyaltyRepository = loyaltyRepository;
+        this.importWriter = importWriter;
+        this.importPipeline = importPipeline;
     }
 
     /**
      * Import products from Excel file
      * Expected columns: Barcode, Name, Description, Price, Stock, Category, TaxRate
+     * Returns inserted/updated/unchanged counts instead of the entities.
      */
-    public List<Product> importProducts(MultipartFile file) throws Exception {
-        List<Product> products = new ArrayList<>();
-        try (InputStream is = file.getInputStream(); Workbook workbook = new XSSFWorkbook(is)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            Iterator<Row> rows = sheet.iterator();
-            if (rows.hasNext()) rows.next(); // Skip header row
-            
-            while (rows.hasNext()) {
-                Row row = rows.next();
-                String barcode = getCellString(row.getCell(0));
-                if (barcode == null || barcode.isEmpty()) continue;
-
-                // Find existing or create new product
-                Product product = productRepository.findByBarcode(barcode).orElse(new Product());
-                product.setBarcode(barcode);
-                product.setName(getCellString(row.getCell(1)));
-                product.setDescription(getCellString(row.getCell(2)));
-                product.setPrice(getCellBigDecimal(row.getCell(3)));
-                
-                Integer stock = getCellInt(row.getCell(4));
-                product.setStock(stock != null ? stock : 0);
+    public ImportResultDTO importProducts(MultipartFile file) throws Exception {
+        ImportResultDTO parsed = new ImportResultDTO();
+        ImportResultDTO written;
+        try (InputStream is = file.getInputStream()) {
+            // Streamed row by row (SAX) so large catalogs never load as a DOM
+            written = importPipeline.run(sink -> {
+                boolean[] header = {true};
+                XlsxStreamReader.read(is, row -> {
+                    if (header[0]) { // Skip header row
+                        header[0] = false;
+                        return;
+                    }
+                    parsed.setRows(parsed.getRows() + 1);
+
+                    String barcode = getCellString(row, 0);
+                    if (barcode == null || barcode.isEmpty()) {
+                        parsed.setSkipped(parsed.getSkipped() + 1);
+                        return;
+                    }
+
+                    Product product = new Product();
+                    product.setBarcode(barcode);
+                    product.setName(getCellString(row, 1));
+                    product.setDescription(getCellString(row, 2));
+                    product.setPrice(getCellBigDecimal(row, 3));
                 
-                product.setCategory(getCellString(row.getCell(5)));
+                    Integer stock = getCellInt(row, 4);
+                    product.setStock(stock != null ? stock : 0);
                 
-                BigDecimal taxRate = getCellBigDecimal(row.getCell(6));
-                product.setTaxRate(taxRate != null ? taxRate : BigDecimal.ZERO);
+                    product.setCategory(getCellString(row, 5));
                 
-                product.setActive(true);
+                    BigDecimal taxRate = getCellBigDecimal(row, 6);
+                    product.setTaxRate(taxRate != null ? taxRate : BigDecimal.ZERO);
                 
-                products.add(productRepository.save(product));
-            }
+                    product.setActive(true);
+
+                    // Inserted or updated in bulk; unchanged rows are left alone
+                    sink.accept(product);
+                });
+            }, importWriter::write, ImportProgress.NONE);
         }
-        return products;
+        written.add(parsed);
+        return written;
     }
 
     /**
@@ -72,57 +86,73 @@ public class ExcelImportService {
      * Expected columns: Name, Type(0=DISCOUNT/1=BUY_X_GET_Y), TriggerProductIds, RewardProductIds,
      *                    MinQuantity, RewardQuantity, DiscountPercent, Active, StartDate, EndDate
      */
-    public List<Loyalty> importLoyaltyPrograms(MultipartFile file) throws Exception {
-        List<Loyalty> loyalties = new ArrayList<>();
+    public ImportResultDTO importLoyaltyPrograms(MultipartFile file) throws Exception {
+        ImportResultDTO parsed = new ImportResultDTO();
+        ImportResultDTO written;
         try (InputStream is = file.getInputStream(); Workbook workbook = new XSSFWorkbook(is)) {
             Sheet sheet = workbook.getSheetAt(0);
             Iterator<Row> rows = sheet.iterator();
             if (rows.hasNext()) rows.next(); // Skip header row
-            
-            while (rows.hasNext()) {
-                Row row = rows.next();
-                String name = getCellString(row.getCell(0));
-                if (name == null || name.isEmpty()) continue;
-
-                Loyalty loyalty = new Loyalty();
-                loyalty.setName(name);
+        
+            // Parsed here, saved in parallel chunks by the pipeline writers
+            written = importPipeline.run(sink -> {
+                while (rows.hasNext()) {
+                    Row row = rows.next();
+                    parsed.setRows(parsed.getRows() + 1);
+                    String name = getCellString(row.getCell(0));
+                    if (name == null || name.isEmpty()) {
+                        parsed.setSkipped(parsed.getSkipped() + 1);
+                        continue;
+                    }
+
+                    Loyalty loyalty = new Loyalty();
+                    loyalty.setName(name);
                 
-                // Parse type: 0 = DISCOUNT, 1 = BUY_X_GET_Y
-                Integer typeVal = getCellInt(row.getCell(1));
-                loyalty.setType(typeVal != null && typeVal == 1 ? 1 : 0);
+                    // Parse type: 0 = DISCOUNT, 1 = BUY_X_GET_Y
+                    Integer typeVal = getCellInt(row.getCell(1));
+                    loyalty.setType(typeVal != null && typeVal == 1 ? 1 : 0);
                 
-                // Trigger product IDs (comma-separated barcodes)
-                String triggerIds = getCellString(row.getCell(2));
-                loyalty.setTriggerProductIds(triggerIds != null ? triggerIds.trim() : null);
+                    // Trigger product IDs (comma-separated barcodes)
+                    String triggerIds = getCellString(row.getCell(2));
+                    loyalty.setTriggerProductIds(triggerIds != null ? triggerIds.trim() : null);
                 
-                // Reward product IDs (comma-separated barcodes)
-                String rewardIds = getCellString(row.getCell(3));
-                loyalty.setRewardProductIds(rewardIds != null ? rewardIds.trim() : null);
+                    // Reward product IDs (comma-separated barcodes)
+                    String rewardIds = getCellString(row.getCell(3));
+                    loyalty.setRewardProductIds(rewardIds != null ? rewardIds.trim() : null);
                 
-                Integer minQty = getCellInt(row.getCell(4));
-                loyalty.setMinQuantity(minQty != null && minQty > 0 ? minQty : 1);
+                    Integer minQty = getCellInt(row.getCell(4));
+                    loyalty.setMinQuantity(minQty != null && minQty > 0 ? minQty : 1);
                 
-                Integer rewardQty = getCellInt(row.getCell(5));
-                loyalty.setRewardQuantity(rewardQty != null && rewardQty > 0 ? rewardQty : 1);
+                    Integer rewardQty = getCellInt(row.getCell(5));
+                    loyalty.setRewardQuantity(rewardQty != null && rewardQty > 0 ? rewardQty : 1);
                 
-                BigDecimal discountPercent = getCellBigDecimal(row.getCell(6));
-                loyalty.setDiscountPercent(discountPercent != null ? discountPercent : BigDecimal.ZERO);
+                    BigDecimal discountPercent = getCellBigDecimal(row.getCell(6));
+                    loyalty.setDiscountPercent(discountPercent != null ? discountPercent : BigDecimal.ZERO);
                 
-                // Active flag
-                String activeStr = getCellString(row.getCell(7));
-                loyalty.setActive(activeStr == null || activeStr.isEmpty() || "1".equals(activeStr) || "true".equalsIgnoreCase(activeStr));
+                    // Active flag
+                    String activeStr = getCellString(row.getCell(7));
+                    loyalty.setActive(activeStr == null || activeStr.isEmpty() || "1".equals(activeStr) || "true".equalsIgnoreCase(activeStr));
                 
-                // Parse dates
-                LocalDateTime startDate = getCellDateTime(row.getCell(8));
-                loyalty.setStartDate(startDate != null ? startDate : LocalDateTime.now());
+                    // Parse dates
+                    LocalDateTime startDate = getCellDateTime(row.getCell(8));
+                    loyalty.setStartDate(startDate != null ? startDate : LocalDateTime.now());
                 
-                LocalDateTime endDate = getCellDateTime(row.getCell(9));
-                loyalty.setEndDate(endDate != null ? endDate : LocalDateTime.now().plusYears(1));
+                    LocalDateTime endDate = getCellDateTime(row.getCell(9));
+                    loyalty.setEndDate(endDate != null ? endDate : LocalDateTime.now().plusYears(1));
                 
-                loyalties.add(loyaltyRepository.save(loyalty));
-            }
+                    sink.accept(loyalty);
+                }
+            }, this::saveLoyalties, ImportProgress.NONE);
         }
-        return loyalties;
+        written.add(parsed);
+        return written;
+    }
+
+    private ImportResultDTO saveLoyalties(List<Loyalty> chunk) {
+        loyaltyRepository.saveAll(chunk);
+        ImportResultDTO result = new ImportResultDTO();
+        result.setInserted(chunk.size());
+        return result;
     }
 
     private String getCellString(Cell cell) {
@@ -142,6 +172,41 @@ public class ExcelImportService {
         }
     }
 
+    private String getCellString(XlsxStreamReader.Row row, int col) {
+        String text = row.getText(col);
+        if (text == null) return null;
+        if (row.isNumeric(col)) {
+            return String.valueOf((long) Double.parseDouble(text));
+        }
+        return text.trim();
+    }
+
+    private BigDecimal getCellBigDecimal(XlsxStreamReader.Row row, int col) {
+        String text = row.getText(col);
+        if (text == null) return BigDecimal.ZERO;
+        try {
+            if (row.isNumeric(col)) {
+                return BigDecimal.valueOf(Double.parseDouble(text));
+            }
+            return new BigDecimal(text.trim());
+        } catch (Exception e) {
+            return BigDecimal.ZERO;
+        }
+    }
+
+    private Integer getCellInt(XlsxStreamReader.Row row, int col) {
+        String text = row.getText(col);
+        if (text == null) return null;
+        try {
+            if (row.isNumeric(col)) {
+                return (int) Double.parseDouble(text);
+            }
+            return Integer.parseInt(text.trim());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private BigDecimal getCellBigDecimal(Cell cell) {
         if (cell == null) return BigDecimal.ZERO;
         switch (cell.getCellType()) {
@@ -0,0 +1,185 @@
+package com.pos.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hi/lo sequences backed by the {@code id_blocks} table, unique across backend nodes.
+ * Each node reserves a block of values per sequence (one short row-locked transaction)
+ * and serves the rest of the block from memory.
+ *
+ * The next block is reserved in the background once half of the current one is used.
+ * Reservations run on the {@code idBlockDataSource} pool: the caller's transaction
+ * already holds an application connection, and under load every one of them can belong
+ * to a thread waiting for the next id, so borrowing from the shared pool (as Hibernate's
+ * own table generator does) would stall until the pool times out. A failed background
+ * reservation is retried with backoff; until it succeeds, a caller that runs out of
+ * values reserves inline.
+ */
+@Slf4j
+@Component
+public class IdBlockAllocator {
+
+    private static final long MIN_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    // Sequences declared by entity mappings, reserved ahead at startup
+    private final Map<String, Integer> declared = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService refiller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "id-block-refill");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public IdBlockAllocator(@Qualifier("idBlockDataSource") DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * Called by {@code BlockIdGenerator} while the entity mappings are built, before the
+     * schema may exist; the first block is reserved once the application is ready.
+     */
+    public void declare(String name, int blockSize) {
+        declared.put(name, blockSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        declared.forEach((name, blockSize) -> sequence(name, blockSize).prefetch());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refiller.shutdownNow();
+    }
+
+    public long next(String name, int blockSize) {
+        return sequence(name, blockSize).next();
+    }
+
+    public void warmUp(String name, int blockSize) {
+        sequence(name, blockSize).prefetch();
+    }
+
+    private Sequence sequence(String name, int blockSize) {
+        return sequences.computeIfAbsent(name, n -> new Sequence(n, blockSize));
+    }
+
+    private final class Sequence {
+        private final String name;
+        private final int blockSize;
+
+        private long next;
+        private long limit;
+
+        // Block reserved ahead of time by the background refill (0 = none)
+        private long prefetched;
+        private boolean refilling;
+        private long backoffMs;
+
+        Sequence(String name, int blockSize) {
+            this.name = name;
+            this.blockSize = blockSize;
+        }
+
+        synchronized long next() {
+            if (next >= limit) {
+                long start = prefetched != 0 ? prefetched : reserveBlock(name, blockSize);
+                prefetched = 0;
+                next = start;
+                limit = start + blockSize;
+            }
+            if (limit - next <= blockSize / 2) {
+                prefetch();
+            }
+            return next++;
+        }
+
+        synchronized void prefetch() {
+            if (prefetched != 0 || refilling) return;
+            refilling = true;
+            refiller.execute(this::refill);
+        }
+
+        private void refill() {
+            long start;
+            try {
+                start = reserveBlock(name, blockSize);
+            } catch (RuntimeException e) {
+                retryLater(e);
+                return;
+            }
+            synchronized (this) {
+                refilling = false;
+                backoffMs = 0;
+                if (next >= limit) {
+                    next = start;
+                    limit = start + blockSize;
+                } else {
+                    prefetched = start;
+                }
+            }
+        }
+
+        // Still marked as refilling, so callers do not queue more attempts meanwhile
+        private void retryLater(RuntimeException e) {
+            long delay;
+            synchronized (this) {
+                backoffMs = Math.min(MAX_BACKOFF_MS, Math.max(MIN_BACKOFF_MS, backoffMs * 2));
+                delay = backoffMs;
+            }
+            log.warn("Reserving an id block for {} failed, retrying in {} ms: {}", name, delay, e.getMessage());
+            try {
+                refiller.schedule(this::refill, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException shutDown) {
+                synchronized (this) {
+                    refilling = false;
+                }
+            }
+        }
+    }
+
+    // Own connection and transaction, so a block is never rolled back with the caller's work
+    private long reserveBlock(String name, int blockSize) {
+        try {
+            return transactionTemplate.execute(status -> {
+                List<Long> current = jdbcTemplate.queryForList(
+                        "SELECT next_value FROM id_blocks WHERE name = ? FOR UPDATE", Long.class, name);
+                if (current.isEmpty()) {
+                    jdbcTemplate.update("INSERT INTO id_blocks (name, next_value) VALUES (?, ?)", name, 1L + blockSize);
+                    return 1L;
+                }
+                long start = current.get(0);
+                jdbcTemplate.update("UPDATE id_blocks SET next_value = ? WHERE name = ?", start + blockSize, name);
+                return start;
+            });
+        } catch (DuplicateKeyException e) {
+            // Another node created the row first; it exists now, so lock it and retry
+            return reserveBlock(name, blockSize);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.pos.service;
+
+import com.pos.dto.ImportJobDTO;
+import com.pos.dto.ImportResultDTO;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live state of one background import, updated by the importer through
+ * {@link ImportProgress}; callers get {@link #toDTO()} snapshots of it.
+ * Only a summary is kept; imported entities are never held on the job.
+ */
+class ImportJob implements ImportProgress {
+
+    private static final int MAX_ERRORS = 100;
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String jobId;
+    private final String type;
+    private final String fileName;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final AtomicInteger rowsProcessed = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile ImportResultDTO result;
+
+    public ImportJob(String jobId, String type, String fileName) {
+        this.jobId = jobId;
+        this.type = type;
+        this.fileName = fileName;
+    }
+
+    @Override
+    public void rowsProcessed(int rows) {
+        rowsProcessed.addAndGet(rows);
+    }
+
+    @Override
+    public void error(String message) {
+        // Keep the first errors only; the count stays exact
+        if (errorCount.incrementAndGet() <= MAX_ERRORS) {
+            errors.add(message);
+        }
+    }
+
+    public void markRunning() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    public void markCompleted(ImportResultDTO result) {
+        this.result = result;
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    public void markFailed(String message) {
+        error(message);
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public int getRowsProcessed() {
+        return rowsProcessed.get();
+    }
+
+    public int getErrorCount() {
+        return errorCount.get();
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    /**
+     * Rows per second since the job started (up to now while running).
+     */
+    public double getRowsPerSecond() {
+        LocalDateTime start = startedAt;
+        if (start == null) return 0;
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long millis = Math.max(1, Duration.between(start, end).toMillis());
+        return Math.round(rowsProcessed.get() * 10000.0 / millis) / 10.0;
+    }
+
+    public ImportResultDTO getResult() {
+        return result;
+    }
+
+    public ImportJobDTO toDTO() {
+        return new ImportJobDTO(jobId, type, fileName, status.name(), submittedAt, startedAt, finishedAt,
+                getRowsProcessed(), getErrorCount(), getErrors(), getRowsPerSecond(), result);
+    }
+}
@@ -0,0 +1,96 @@
+package com.pos.service;
+
+import com.pos.dto.ImportJobDTO;
+import com.pos.dto.ImportResultDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs imports as background jobs on the bounded import executor and keeps
+ * their progress for polling via GET /api/imports/{jobId}.
+ */
+@Service
+public class ImportJobService {
+
+    private static final int MAX_FINISHED_JOBS = 100;
+
+    @FunctionalInterface
+    public interface ImportTask {
+        ImportResultDTO run(File file, ImportProgress progress) throws Exception;
+    }
+
+    @Autowired
+    @Qualifier("importExecutor")
+    private ThreadPoolTaskExecutor importExecutor;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Spool the upload to a temp file (the multipart file is gone once the
+     * request returns) and queue the import. Throws if the queue is full.
+     */
+    public ImportJobDTO submit(String type, MultipartFile file, ImportTask task) throws Exception {
+        String suffix = file.getOriginalFilename() != null && file.getOriginalFilename().toLowerCase().endsWith(".csv")
+                ? ".csv" : ".xlsx";
+        Path tmp = Files.createTempFile("pos-import-", suffix);
+        file.transferTo(tmp);
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), type, file.getOriginalFilename());
+        jobs.put(job.getJobId(), job);
+        evictFinishedJobs();
+
+        try {
+            importExecutor.execute(() -> run(job, tmp, task));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getJobId());
+            Files.deleteIfExists(tmp);
+            throw new RuntimeException("Import queue is full, try again later");
+        }
+        return job.toDTO();
+    }
+
+    public Optional<ImportJobDTO> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ImportJob::toDTO);
+    }
+
+    public List<ImportJobDTO> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(ImportJob::getSubmittedAt).reversed())
+                .map(ImportJob::toDTO)
+                .toList();
+    }
+
+    private void run(ImportJob job, Path tmp, ImportTask task) {
+        job.markRunning();
+        try {
+            job.markCompleted(task.run(tmp.toFile(), job));
+        } catch (Exception e) {
+            job.markFailed(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private void evictFinishedJobs() {
+        List<ImportJob> finished = jobs.values().stream()
+                .filter(ImportJob::isFinished)
+                .sorted(Comparator.comparing(ImportJob::getSubmittedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - MAX_FINISHED_JOBS; i++) {
+            jobs.remove(finished.get(i).getJobId());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.pos.service;
+
+import com.pos.dto.ImportResultDTO;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Parser -> bounded queue -> N writer threads. The parser (running on the caller's
+ * thread) groups rows into fixed-size chunks; each writer commits one chunk per
+ * transaction. Writers run on the shared {@code importWriterExecutor}. A failing
+ * chunk is retried and, if it still fails, reported through {@link ImportProgress#error}
+ * without rolling back the chunks already committed.
+ */
+@Component
+public class ImportPipeline {
+
+    @FunctionalInterface
+    public interface RowSource<T> {
+        void produce(Consumer<T> sink) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface ChunkWriter<T> {
+        ImportResultDTO write(List<T> chunk);
+    }
+
+    private record Chunk<T>(int firstRow, List<T> rows) {
+    }
+
+    private static final Chunk<?> END = new Chunk<>(-1, List.of());
+
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncTaskExecutor writerExecutor;
+
+    @Value("${pos.import.writer-threads:3}")
+    private int writerThreads;
+
+    @Value("${pos.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${pos.import.chunk-retries:2}")
+    private int chunkRetries;
+
+    public ImportPipeline(PlatformTransactionManager transactionManager,
+                          @Qualifier("importWriterExecutor") AsyncTaskExecutor writerExecutor) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.writerExecutor = writerExecutor;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public <T> ImportResultDTO run(RowSource<T> source, ChunkWriter<T> writer, ImportProgress progress) throws Exception {
+        BlockingQueue<Chunk<T>> queue = new ArrayBlockingQueue<>(writerThreads * 2);
+        ImportResultDTO total = new ImportResultDTO();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < writerThreads; i++) {
+            futures.add(writerExecutor.submit(() -> drain(queue, writer, total, progress)));
+        }
+
+        try {
+            AtomicReference<List<T>> current = new AtomicReference<>(new ArrayList<>(chunkSize));
+            int[] rowCount = {0};
+            source.produce(row -> {
+                current.get().add(row);
+                rowCount[0]++;
+                if (current.get().size() >= chunkSize) {
+                    put(queue, new Chunk<>(rowCount[0] - current.get().size() + 1, current.get()));
+                    current.set(new ArrayList<>(chunkSize));
+                }
+            });
+            if (!current.get().isEmpty()) {
+                put(queue, new Chunk<>(rowCount[0] - current.get().size() + 1, current.get()));
+            }
+        } finally {
+            // One end marker per writer, even when parsing failed, so every worker exits
+            for (int i = 0; i < writerThreads; i++) {
+                put(queue, end());
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return total;
+    }
+
+    private <T> void drain(BlockingQueue<Chunk<T>> queue, ChunkWriter<T> writer,
+                           ImportResultDTO total, ImportProgress progress) {
+        while (true) {
+            Chunk<T> chunk;
+            try {
+                chunk = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (chunk == END) return;
+
+            ImportResultDTO result = writeWithRetry(chunk, writer, progress);
+            synchronized (total) {
+                total.add(result);
+            }
+        }
+    }
+
+    private <T> ImportResultDTO writeWithRetry(Chunk<T> chunk, ChunkWriter<T> writer, ImportProgress progress) {
+        Exception last = null;
+        for (int attempt = 0; attempt <= chunkRetries; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> writer.write(chunk.rows()));
+            } catch (Exception e) {
+                last = e;
+                try {
+                    Thread.sleep(100L * (attempt + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        int lastRow = chunk.firstRow() + chunk.rows().size() - 1;
+        progress.error("Records " + chunk.firstRow() + "-" + lastRow + " failed: "
+                + (last != null ? last.getMessage() : "interrupted"));
+        ImportResultDTO failed = new ImportResultDTO();
+        failed.setFailed(chunk.rows().size());
+        return failed;
+    }
+
+    private static <T> void put(BlockingQueue<Chunk<T>> queue, Chunk<T> chunk) {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Import interrupted", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Chunk<T> end() {
+        return (Chunk<T>) END;
+    }
+}
@@ -0,0 +1,21 @@
+package com.pos.service;
+
+/**
+ * Callback the importers use to report progress to a running import job.
+ */
+public interface ImportProgress {
+
+    ImportProgress NONE = new ImportProgress() {
+        @Override
+        public void rowsProcessed(int rows) {
+        }
+
+        @Override
+        public void error(String message) {
+        }
+    };
+
+    void rowsProcessed(int rows);
+
+    void error(String message);
+}
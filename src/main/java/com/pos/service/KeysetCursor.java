@@ -0,0 +1,36 @@
+package com.pos.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Opaque keyset position {@code (timestamp, id)}, encoded as "epochMicros-id".
+ */
+public record KeysetCursor(LocalDateTime at, long id) {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /** Before every row. */
+    public static final KeysetCursor START = new KeysetCursor(EPOCH, 0L);
+
+    public static KeysetCursor of(LocalDateTime at, Long id) {
+        return new KeysetCursor(at, id);
+    }
+
+    /**
+     * Null or blank gives {@code null}; anything else malformed is rejected.
+     */
+    public static KeysetCursor parse(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String[] parts = cursor.split("-", 2);
+            return new KeysetCursor(EPOCH.plus(Long.parseLong(parts[0]), ChronoUnit.MICROS), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        return ChronoUnit.MICROS.between(EPOCH, at) + "-" + id;
+    }
+}
@@ -0,0 +1,380 @@
+package com.pos.service;
+
+import com.pos.model.Loyalty;
+import com.pos.repository.LoyaltyRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides the loyalty discount, reward flag and promotion name of each sale line from
+ * the loyalty programs, so the terminal's values no longer have to be trusted.
+ *
+ * Active programs are compiled into an immutable index: barcode to discount programs
+ * (best saving first), barcode to BUY_X_GET_Y programs it triggers, and barcode to
+ * the programs whose reward pool it is in, with barcodes split and amounts in minor
+ * units once. The index is rebuilt and swapped in whole after every loyalty write and on
+ * a timer (which also drops expired programs). Writes through {@link LoyaltyService}
+ * recompile before they return; any other write to a loyalty row (seeding, imports)
+ * schedules a background recompile once it commits ({@link LoyaltyChangeListener}),
+ * coalescing bursts into one. A cart
+ * is evaluated in a pass over its lines and the programs they touch, with no database
+ * access.
+ *
+ * BUY_X_GET_Y: each minQuantity trigger units give rewardQuantity reward units free,
+ * cheapest first, as far as the cart holds reward units not needed as triggers. Units
+ * given away are gone for later programs; trigger units are not used up.
+ * DISCOUNT: a barcode counts towards its best program only. Units of that program's
+ * barcodes are pooled across lines, and each complete set of minQuantity is discounted by
+ * discountAmount (fixed) or else discountPercent of the set's price. Free units are not
+ * counted. A discount is spread over the lines of its sets in proportion to their price.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoyaltyEngine {
+
+    public record CartLine(String barcode, int quantity, BigDecimal unitPrice) {
+    }
+
+    /**
+     * The line's discount amount (free units included), whether the whole line is a
+     * free reward, the promotion that applied, if any, and whether any active program
+     * covers the barcode at all. Uncovered lines are outside what the engine decides.
+     */
+    public record LineLoyalty(BigDecimal discount, boolean reward, String promotionName, boolean covered) {
+    }
+
+    private record Program(long id, String name, int minQuantity, int rewardQuantity,
+                           long setDiscount, long percent, long rank,
+                           LocalDateTime startDate, LocalDateTime endDate) {
+        boolean activeAt(LocalDateTime now) {
+            return (startDate == null || !startDate.isAfter(now)) && (endDate == null || !endDate.isBefore(now));
+        }
+    }
+
+    private record Compiled(Map<String, List<Program>> discounts, Map<String, List<Program>> triggers,
+                            Map<String, List<Program>> rewards) {
+    }
+
+    private final LoyaltyRepository loyaltyRepository;
+
+    private final AtomicReference<Compiled> compiled = new AtomicReference<>();
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    private final ExecutorService recompiler = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "loyalty-recompile");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        recompiler.shutdownNow();
+    }
+
+    /**
+     * Recompile in the background; any number of calls before it starts share one run.
+     */
+    public void refreshSoon() {
+        if (!stale.compareAndSet(false, true)) return;
+        try {
+            recompiler.execute(() -> {
+                stale.set(false);
+                refresh();
+            });
+        } catch (RejectedExecutionException shutDown) {
+            stale.set(false);
+        }
+    }
+
+    /**
+     * Recompile from the database and swap the new index in. Also runs on a timer, for
+     * programs that start or end and for writes made through another node.
+     */
+    @Scheduled(fixedDelayString = "${pos.loyalty.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            recompile();
+        } catch (Exception e) {
+            log.warn("Loyalty recompile failed, keeping the previous programs: {}", e.getMessage());
+        }
+    }
+
+    private synchronized Compiled recompile() {
+        Compiled next = compile(loyaltyRepository.findByActiveTrue(), LocalDateTime.now());
+        compiled.set(next);
+        return next;
+    }
+
+    private Compiled current() {
+        Compiled current = compiled.get();
+        return current != null ? current : recompile();
+    }
+
+    /**
+     * Evaluate a sale cart. Results are in line order.
+     */
+    public List<LineLoyalty> evaluate(List<CartLine> lines) {
+        Compiled index = current();
+        LocalDateTime now = LocalDateTime.now();
+        int n = lines.size();
+        long[] price = new long[n];
+        int[] quantity = new int[n];
+        int[] free = new int[n];
+        long[] discount = new long[n];
+        String[] promotion = new String[n];
+        boolean[] covered = new boolean[n];
+
+        // Reward pools touched by the cart, by program id so they apply in a stable order
+        Map<Long, Pool> pools = new TreeMap<>();
+        for (int i = 0; i < n; i++) {
+            CartLine line = lines.get(i);
+            price[i] = toMinor(line.unitPrice());
+            quantity[i] = Math.abs(line.quantity());
+            List<Program> triggers = index.triggers().getOrDefault(line.barcode(), List.of());
+            List<Program> rewards = index.rewards().getOrDefault(line.barcode(), List.of());
+            for (Program program : triggers) {
+                if (!program.activeAt(now)) continue;
+                Pool pool = pools.computeIfAbsent(program.id(), id -> new Pool(program));
+                (rewards.contains(program) ? pool.both : pool.triggerOnly).add(i);
+            }
+            for (Program program : rewards) {
+                if (!program.activeAt(now) || triggers.contains(program)) continue;
+                pools.computeIfAbsent(program.id(), id -> new Pool(program)).rewardOnly.add(i);
+            }
+            covered[i] = anyActive(triggers, now) || anyActive(rewards, now)
+                    || anyActive(index.discounts().getOrDefault(line.barcode(), List.of()), now);
+        }
+        for (Pool pool : pools.values()) {
+            applyReward(pool, price, quantity, free, promotion);
+        }
+
+        // Paid units pooled per discount program
+        Map<Long, Bundle> bundles = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            int paid = quantity[i] - free[i];
+            if (paid <= 0) continue;
+            for (Program program : index.discounts().getOrDefault(lines.get(i).barcode(), List.of())) {
+                if (!program.activeAt(now)) continue;
+                Bundle bundle = bundles.computeIfAbsent(program.id(), id -> new Bundle(program));
+                bundle.units += paid;
+                bundle.lines.add(i);
+                break;
+            }
+        }
+        for (Bundle bundle : bundles.values()) {
+            applyDiscount(bundle, price, quantity, free, discount, promotion);
+        }
+
+        List<LineLoyalty> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long total = discount[i] + free[i] * price[i];
+            result.add(new LineLoyalty(BigDecimal.valueOf(total, 2),
+                    free[i] > 0 && free[i] == quantity[i], promotion[i], covered[i]));
+        }
+        return result;
+    }
+
+    private static boolean anyActive(List<Program> programs, LocalDateTime now) {
+        for (Program program : programs) {
+            if (program.activeAt(now)) return true;
+        }
+        return false;
+    }
+
+    private static final class Pool {
+        final Program program;
+        final List<Integer> triggerOnly = new ArrayList<>();
+        final List<Integer> rewardOnly = new ArrayList<>();
+        final List<Integer> both = new ArrayList<>();
+
+        Pool(Program program) {
+            this.program = program;
+        }
+    }
+
+    private static final class Bundle {
+        final Program program;
+        final List<Integer> lines = new ArrayList<>();
+        int units;
+
+        Bundle(Program program) {
+            this.program = program;
+        }
+    }
+
+    /**
+     * Give away as many reward units as the triggers allow. With t trigger-only units,
+     * o units that may be either and r reward-only units, k activations free
+     * min(k*Y, r + o - max(0, k*X - t)) units; that is concave in k, so its maximum is
+     * next to k = t/X or to where the two terms meet.
+     */
+    private static void applyReward(Pool pool, long[] price, int[] quantity, int[] free, String[] promotion) {
+        long t = available(pool.triggerOnly, quantity, free);
+        long o = available(pool.both, quantity, free);
+        long r = available(pool.rewardOnly, quantity, free);
+        int x = pool.program.minQuantity();
+        int y = pool.program.rewardQuantity();
+
+        long maxActivations = (t + o) / x;
+        long meet = (t + o + r) / (x + y);
+        long units = 0;
+        for (long k : new long[]{t / x, t / x + 1, meet, meet + 1}) {
+            k = Math.min(k, maxActivations);
+            units = Math.max(units, Math.min(k * y, r + o - Math.max(0, k * x - t)));
+        }
+        if (units <= 0) return;
+
+        units = giveAway(pool.rewardOnly, units, pool.program, price, quantity, free, promotion);
+        giveAway(pool.both, units, pool.program, price, quantity, free, promotion);
+    }
+
+    // Free up to {@code units} units of these lines, cheapest first; returns what is left
+    private static long giveAway(List<Integer> lines, long units, Program program,
+                                 long[] price, int[] quantity, int[] free, String[] promotion) {
+        List<Integer> cheapestFirst = new ArrayList<>(lines);
+        cheapestFirst.sort(Comparator.comparingLong((Integer i) -> price[i]).thenComparingInt(i -> i));
+        for (int i : cheapestFirst) {
+            if (units == 0) break;
+            int take = (int) Math.min(units, quantity[i] - free[i]);
+            if (take <= 0) continue;
+            free[i] += take;
+            units -= take;
+            if (promotion[i] == null) promotion[i] = program.name();
+        }
+        return units;
+    }
+
+    private static long available(List<Integer> lines, int[] quantity, int[] free) {
+        long units = 0;
+        for (int i : lines) units += quantity[i] - free[i];
+        return units;
+    }
+
+    private static void applyDiscount(Bundle bundle, long[] price, int[] quantity, int[] free,
+                                      long[] discount, String[] promotion) {
+        Program program = bundle.program;
+        int sets = bundle.units / program.minQuantity();
+        if (sets == 0) return;
+
+        // The units that make up the sets, taken in line order
+        long remaining = (long) sets * program.minQuantity();
+        long[] setValue = new long[bundle.lines.size()];
+        long value = 0;
+        for (int j = 0; j < setValue.length && remaining > 0; j++) {
+            int i = bundle.lines.get(j);
+            long take = Math.min(remaining, quantity[i] - free[i]);
+            setValue[j] = take * price[i];
+            value += setValue[j];
+            remaining -= take;
+        }
+        if (value <= 0) return;
+
+        long total = program.setDiscount() > 0
+                ? sets * program.setDiscount()
+                : roundHalfUp(mulDiv(value, program.percent(), 1), 10_000);
+        total = Math.min(total, value);
+        if (total <= 0) return;
+
+        // In proportion to price; the last line takes the rounding
+        long given = 0;
+        int last = setValue.length - 1;
+        while (setValue[last] == 0) last--;
+        for (int j = 0; j <= last; j++) {
+            if (setValue[j] == 0) continue;
+            int i = bundle.lines.get(j);
+            long share = j == last ? total - given : mulDiv(total, setValue[j], value);
+            discount[i] += share;
+            given += share;
+            if (promotion[i] == null) promotion[i] = program.name();
+        }
+    }
+
+    private static Compiled compile(List<Loyalty> loyalties, LocalDateTime now) {
+        Map<String, List<Program>> discounts = new HashMap<>();
+        Map<String, List<Program>> triggers = new HashMap<>();
+        Map<String, List<Program>> rewards = new HashMap<>();
+
+        for (Loyalty loyalty : loyalties) {
+            if (loyalty.getEndDate() != null && loyalty.getEndDate().isBefore(now)) continue;
+            int minQuantity = Math.max(1, loyalty.getMinQuantity() != null ? loyalty.getMinQuantity() : 1);
+
+            if (loyalty.isBuyXGetY()) {
+                int rewardQuantity = loyalty.getRewardQuantity() != null ? loyalty.getRewardQuantity() : 0;
+                if (rewardQuantity <= 0) continue;
+                Program program = new Program(loyalty.getId(), loyalty.getName(), minQuantity, rewardQuantity,
+                        0, 0, 0, loyalty.getStartDate(), loyalty.getEndDate());
+                index(triggers, loyalty.getTriggerBarcodes(), program);
+                index(rewards, loyalty.getRewardBarcodes(), program);
+            } else if (loyalty.isDiscount()) {
+                long setDiscount = loyalty.isFixedDiscount() ? toMinor(loyalty.getDiscountAmount()) : 0;
+                long percent = setDiscount == 0 && loyalty.getDiscountPercent() != null
+                        ? Math.min(10_000, toMinor(loyalty.getDiscountPercent())) : 0;
+                if (setDiscount <= 0 && percent <= 0) continue;
+                // Saving per unit, for choosing between programs sharing a barcode
+                long rank = setDiscount > 0
+                        ? setDiscount * 100 / minQuantity
+                        : loyalty.getTotalPrice() != null ? toMinor(loyalty.getTotalPrice()) * percent / 100 : 0;
+                Program program = new Program(loyalty.getId(), loyalty.getName(), minQuantity, 0,
+                        setDiscount, percent, rank, loyalty.getStartDate(), loyalty.getEndDate());
+                index(discounts, loyalty.getTriggerBarcodes(), program);
+            }
+        }
+
+        Comparator<Program> bestFirst = Comparator.comparingLong(Program::rank).reversed()
+                .thenComparingLong(Program::id);
+        discounts.values().forEach(programs -> programs.sort(bestFirst));
+        return new Compiled(freeze(discounts), freeze(triggers), freeze(rewards));
+    }
+
+    private static void index(Map<String, List<Program>> index, List<String> barcodes, Program program) {
+        for (String barcode : new LinkedHashSet<>(barcodes)) {
+            index.computeIfAbsent(barcode, b -> new ArrayList<>()).add(program);
+        }
+    }
+
+    private static Map<String, List<Program>> freeze(Map<String, List<Program>> index) {
+        Map<String, List<Program>> frozen = new HashMap<>(index.size() * 2);
+        index.forEach((barcode, programs) -> frozen.put(barcode, List.copyOf(programs)));
+        return Map.copyOf(frozen);
+    }
+
+    // Minor units (2 decimals), rounding HALF_UP anything finer
+    private static long toMinor(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    private static long mulDiv(long a, long b, long c) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) return low / c;
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).divide(BigInteger.valueOf(c)).longValueExact();
+    }
+
+    private static long roundHalfUp(long value, long divisor) {
+        long q = value / divisor;
+        if (value % divisor * 2 >= divisor) q++;
+        return q;
+    }
+}
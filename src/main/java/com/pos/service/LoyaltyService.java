@@ -1,18 +1,23 @@
 package com.pos.service;
 
+import com.pos.dto.CartEvaluationDTO;
+import com.pos.dto.CartItemDTO;
+import com.pos.dto.ImportResultDTO;
+import com.pos.dto.ProductSnapshot;
 import com.pos.model.Loyalty;
 import com.pos.repository.LoyaltyRepository;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -24,6 +29,18 @@ public class LoyaltyService {
     @Autowired
     private LoyaltyRepository loyaltyRepository;
 
+    @Autowired
+    private ImportPipeline importPipeline;
+
+    @Autowired
+    private LoyaltyEngine loyaltyEngine;
+
+    @Autowired
+    private ProductCatalogIndex catalogIndex;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
     public List<Loyalty> getAllLoyalties() {
         return loyaltyRepository.findAll();
     }
@@ -33,16 +50,60 @@ public class LoyaltyService {
     }
 
     public Loyalty saveLoyalty(Loyalty loyalty) {
-        return loyaltyRepository.save(loyalty);
+        Loyalty saved = loyaltyRepository.save(loyalty);
+        loyaltyEngine.refresh();
+        return saved;
     }
 
     public void deleteLoyalty(Long id) {
         loyaltyRepository.findById(id).ifPresent(loyalty -> {
             loyalty.setActive(false);
             loyaltyRepository.save(loyalty);
+            loyaltyEngine.refresh();
         });
     }
 
+    /**
+     * Price a sale cart the way checkout does with server pricing on: catalog prices,
+     * loyalty decided by {@link LoyaltyEngine} on lines a program covers. Other lines keep
+     * the discount, promotion and reward flag sent with them.
+     */
+    public CartEvaluationDTO evaluateCart(List<CartItemDTO> items) {
+        Map<String, ProductSnapshot> products =
+                catalogIndex.lookupAll(items.stream().map(CartItemDTO::getBarcode).toList());
+        String missing = items.stream()
+                .map(CartItemDTO::getBarcode)
+                .filter(barcode -> !products.containsKey(barcode))
+                .distinct()
+                .collect(Collectors.joining(", "));
+        if (!missing.isEmpty()) throw new RuntimeException("Product not found: " + missing);
+
+        List<LoyaltyEngine.CartLine> cart = new ArrayList<>(items.size());
+        for (CartItemDTO item : items) {
+            int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
+            cart.add(new LoyaltyEngine.CartLine(item.getBarcode(), quantity, products.get(item.getBarcode()).getPrice()));
+        }
+        List<LoyaltyEngine.LineLoyalty> loyalty = loyaltyEngine.evaluate(cart);
+
+        List<CartItemDTO> lines = new ArrayList<>(items.size());
+        List<PricingEngine.LineInput> inputs = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ProductSnapshot product = products.get(items.get(i).getBarcode());
+            CartItemDTO item = items.get(i);
+            LoyaltyEngine.LineLoyalty line = loyalty.get(i);
+            int quantity = cart.get(i).quantity();
+            // As at checkout: lines no program covers keep the terminal's discount
+            BigDecimal discount = line.covered() ? line.discount() : item.getDiscount();
+            lines.add(new CartItemDTO(product.getBarcode(), quantity, product.getPrice(), discount,
+                    line.covered() ? line.promotionName() : item.getPromotionName(),
+                    line.covered() ? line.reward() : item.getIsReward()));
+            inputs.add(new PricingEngine.LineInput(product.getPrice(), quantity, discount, product.getTaxRate()));
+        }
+        PricingEngine.Quote quote = pricingEngine.price(inputs, false);
+        return new CartEvaluationDTO(lines, quote.subtotal(), quote.discountAmount(),
+                quote.taxAmount(), quote.totalAmount());
+    }
+
     /**
      * Bulk upsert loyalty programs (used by sync service).
      * Matches by odoo_program_id if present, otherwise by name.
@@ -59,21 +120,7 @@ public class LoyaltyService {
 
             if (existing != null) {
                 // Update existing
-                existing.setName(incoming.getName());
-                existing.setType(incoming.getType());
-                existing.setTriggerProductIds(incoming.getTriggerProductIds());
-                existing.setRewardProductIds(incoming.getRewardProductIds());
-                existing.setMinQuantity(incoming.getMinQuantity());
-                existing.setMaxQuantity(incoming.getMaxQuantity());
-                existing.setRewardQuantity(incoming.getRewardQuantity());
-                existing.setDiscountPercent(incoming.getDiscountPercent());
-                existing.setDiscountAmount(incoming.getDiscountAmount());
-                existing.setAfterDiscount(incoming.getAfterDiscount());
-                existing.setTotalPrice(incoming.getTotalPrice());
-                existing.setActive(incoming.getActive());
-                existing.setStartDate(incoming.getStartDate());
-                existing.setEndDate(incoming.getEndDate());
-                existing.setOdooRuleId(incoming.getOdooRuleId());
+                copyProgramFields(incoming, existing);
                 existing.setLastSyncAt(LocalDateTime.now());
                 results.add(loyaltyRepository.save(existing));
             } else {
@@ -82,6 +129,7 @@ public class LoyaltyService {
                 results.add(loyaltyRepository.save(incoming));
             }
         }
+        loyaltyEngine.refresh();
         return results;
     }
 
@@ -100,10 +148,11 @@ public class LoyaltyService {
      *  - eligible_product_barcode (one per row, grouped by program_id)
      *  - rule_id
      */
-    public List<Loyalty> importFromCsv(MultipartFile file) throws Exception {
+    public ImportResultDTO importFromCsv(File file, ImportProgress progress) throws Exception {
         Map<String, CsvProgramGroup> groups = new LinkedHashMap<>();
+        ImportResultDTO result = new ImportResultDTO();
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), "UTF-8"))) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), "UTF-8"))) {
             String headerLine = reader.readLine();
             if (headerLine == null) throw new RuntimeException("Empty CSV file");
             
@@ -122,6 +171,8 @@ public class LoyaltyService {
             while ((line = reader.readLine()) != null) {
                 line = line.replaceAll("\r", "").trim();
                 if (line.isEmpty()) continue;
+                result.setRows(result.getRows() + 1);
+                progress.rowsProcessed(1);
                 
                 String[] cols = parseCsvLine(line);
                 
@@ -135,7 +186,10 @@ public class LoyaltyService {
                 String eligibleBarcode = getCol(cols, colIdx, "eligible_product_barcode");
                 String ruleId = getCol(cols, colIdx, "rule_id");
 
-                if (programId.isEmpty() || eligibleBarcode.isEmpty()) continue;
+                if (programId.isEmpty() || eligibleBarcode.isEmpty()) {
+                    result.setSkipped(result.getSkipped() + 1);
+                    continue;
+                }
 
                 CsvProgramGroup group = groups.computeIfAbsent(programId, k -> {
                     CsvProgramGroup g = new CsvProgramGroup();
@@ -153,82 +207,114 @@ public class LoyaltyService {
             }
         }
 
-        // Convert groups to Loyalty entities
-        List<Loyalty> result = new ArrayList<>();
-        for (CsvProgramGroup group : groups.values()) {
-            Loyalty loyalty = new Loyalty();
-            loyalty.setName(group.programName);
-            loyalty.setType(0); // DISCOUNT (fixed amount)
-
-            // Deduplicate barcodes
-            String barcodes = group.eligibleBarcodes.stream()
-                    .distinct()
-                    .collect(Collectors.joining(","));
-            loyalty.setTriggerProductIds(barcodes);
-            loyalty.setRewardProductIds(barcodes); // Same group
-
-            int minQ = parseIntSafe(group.minQty, 1);
-            loyalty.setMinQuantity(minQ);
-            loyalty.setMaxQuantity(1);
-            loyalty.setRewardQuantity(minQ);
-
-            BigDecimal tp = parseBigDecimalSafe(group.totalPrice);
-            BigDecimal ad = parseBigDecimalSafe(group.afterDiscount);
-            BigDecimal disc = parseBigDecimalSafe(group.discount);
-
-            loyalty.setTotalPrice(tp);
-            loyalty.setAfterDiscount(ad);
-            loyalty.setDiscountAmount(disc);
-
-            // Also calculate percentage for display
-            BigDecimal fullPrice = tp.multiply(BigDecimal.valueOf(minQ));
-            if (fullPrice.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal pct = disc.divide(fullPrice, 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100))
-                        .setScale(2, RoundingMode.HALF_UP);
-                loyalty.setDiscountPercent(pct);
-            } else {
-                loyalty.setDiscountPercent(BigDecimal.ZERO);
+        // Convert groups to Loyalty entities; the pipeline writers upsert them in parallel chunks
+        ImportResultDTO written = runImport(sink -> {
+            for (CsvProgramGroup group : groups.values()) {
+                Loyalty loyalty = new Loyalty();
+                loyalty.setName(group.programName);
+                loyalty.setType(0); // DISCOUNT (fixed amount)
+
+                // Deduplicate barcodes
+                String barcodes = group.eligibleBarcodes.stream()
+                        .distinct()
+                        .collect(Collectors.joining(","));
+                loyalty.setTriggerProductIds(barcodes);
+                loyalty.setRewardProductIds(barcodes); // Same group
+
+                int minQ = parseIntSafe(group.minQty, 1);
+                loyalty.setMinQuantity(minQ);
+                loyalty.setMaxQuantity(1);
+                loyalty.setRewardQuantity(minQ);
+
+                BigDecimal tp = parseBigDecimalSafe(group.totalPrice);
+                BigDecimal ad = parseBigDecimalSafe(group.afterDiscount);
+                BigDecimal disc = parseBigDecimalSafe(group.discount);
+
+                loyalty.setTotalPrice(tp);
+                loyalty.setAfterDiscount(ad);
+                loyalty.setDiscountAmount(disc);
+
+                // Also calculate percentage for display
+                BigDecimal fullPrice = tp.multiply(BigDecimal.valueOf(minQ));
+                if (fullPrice.compareTo(BigDecimal.ZERO) > 0) {
+                    BigDecimal pct = disc.divide(fullPrice, 4, RoundingMode.HALF_UP)
+                            .multiply(BigDecimal.valueOf(100))
+                            .setScale(2, RoundingMode.HALF_UP);
+                    loyalty.setDiscountPercent(pct);
+                } else {
+                    loyalty.setDiscountPercent(BigDecimal.ZERO);
+                }
+
+                loyalty.setActive("True".equalsIgnoreCase(group.ruleActive) || "true".equalsIgnoreCase(group.ruleActive));
+                loyalty.setStartDate(LocalDateTime.now().minusYears(1));
+                loyalty.setEndDate(LocalDateTime.now().plusYears(2));
+                loyalty.setOdooProgramId(parseLongSafe(group.programId));
+                loyalty.setOdooRuleId(parseLongSafe(group.ruleId));
+
+                sink.accept(loyalty);
             }
+        }, this::upsertByOdooProgramId, progress);
 
-            loyalty.setActive("True".equalsIgnoreCase(group.ruleActive) || "true".equalsIgnoreCase(group.ruleActive));
-            loyalty.setStartDate(LocalDateTime.now().minusYears(1));
-            loyalty.setEndDate(LocalDateTime.now().plusYears(2));
-            loyalty.setOdooProgramId(parseLongSafe(group.programId));
-            loyalty.setOdooRuleId(parseLongSafe(group.ruleId));
+        written.add(result);
+        return written;
+    }
 
-            // Upsert by odoo_program_id
-            Loyalty existing = loyalty.getOdooProgramId() != null 
-                ? loyaltyRepository.findByOdooProgramId(loyalty.getOdooProgramId()).orElse(null) 
+    /**
+     * Upsert one chunk by odoo_program_id: a single IN query for the existing rows,
+     * then one saveAll.
+     */
+    private ImportResultDTO upsertByOdooProgramId(List<Loyalty> chunk) {
+        ImportResultDTO result = new ImportResultDTO();
+        List<Long> programIds = chunk.stream()
+                .map(Loyalty::getOdooProgramId)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<Long, Loyalty> existingByProgramId = new HashMap<>();
+        if (!programIds.isEmpty()) {
+            for (Loyalty existing : loyaltyRepository.findByOdooProgramIdIn(programIds)) {
+                existingByProgramId.putIfAbsent(existing.getOdooProgramId(), existing);
+            }
+        }
+
+        List<Loyalty> toSave = new ArrayList<>(chunk.size());
+        for (Loyalty loyalty : chunk) {
+            Loyalty existing = loyalty.getOdooProgramId() != null
+                ? existingByProgramId.get(loyalty.getOdooProgramId())
                 : null;
-            
+
             if (existing != null) {
-                existing.setName(loyalty.getName());
-                existing.setType(loyalty.getType());
-                existing.setTriggerProductIds(loyalty.getTriggerProductIds());
-                existing.setRewardProductIds(loyalty.getRewardProductIds());
-                existing.setMinQuantity(loyalty.getMinQuantity());
-                existing.setMaxQuantity(loyalty.getMaxQuantity());
-                existing.setRewardQuantity(loyalty.getRewardQuantity());
-                existing.setDiscountPercent(loyalty.getDiscountPercent());
-                existing.setDiscountAmount(loyalty.getDiscountAmount());
-                existing.setAfterDiscount(loyalty.getAfterDiscount());
-                existing.setTotalPrice(loyalty.getTotalPrice());
-                existing.setActive(loyalty.getActive());
-                existing.setStartDate(loyalty.getStartDate());
-                existing.setEndDate(loyalty.getEndDate());
-                existing.setOdooRuleId(loyalty.getOdooRuleId());
+                copyProgramFields(loyalty, existing);
                 existing.setLastSyncAt(LocalDateTime.now());
-                result.add(loyaltyRepository.save(existing));
+                toSave.add(existing);
+                result.setUpdated(result.getUpdated() + 1);
             } else {
                 loyalty.setLastSyncAt(LocalDateTime.now());
-                result.add(loyaltyRepository.save(loyalty));
+                toSave.add(loyalty);
+                result.setInserted(result.getInserted() + 1);
             }
         }
-
+        loyaltyRepository.saveAll(toSave);
         return result;
     }
 
+    private void copyProgramFields(Loyalty from, Loyalty to) {
+        to.setName(from.getName());
+        to.setType(from.getType());
+        to.setTriggerProductIds(from.getTriggerProductIds());
+        to.setRewardProductIds(from.getRewardProductIds());
+        to.setMinQuantity(from.getMinQuantity());
+        to.setMaxQuantity(from.getMaxQuantity());
+        to.setRewardQuantity(from.getRewardQuantity());
+        to.setDiscountPercent(from.getDiscountPercent());
+        to.setDiscountAmount(from.getDiscountAmount());
+        to.setAfterDiscount(from.getAfterDiscount());
+        to.setTotalPrice(from.getTotalPrice());
+        to.setActive(from.getActive());
+        to.setStartDate(from.getStartDate());
+        to.setEndDate(from.getEndDate());
+        to.setOdooRuleId(from.getOdooRuleId());
+    }
+
     /**
      * Simple CSV line parser that handles quoted fields.
      */
@@ -305,11 +391,12 @@ public class LoyaltyService {
 
     // ---- Excel import (existing) ----
 
-    public List<Loyalty> importFromExcel(MultipartFile file) throws Exception {
-        List<Loyalty> loyalties = new ArrayList<>();
+    public ImportResultDTO importFromExcel(File file, ImportProgress progress) throws Exception {
+        ImportResultDTO result = new ImportResultDTO();
+        ImportResultDTO written;
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-        try (InputStream is = file.getInputStream();
+        try (InputStream is = Files.newInputStream(file.toPath());
              Workbook workbook = new XSSFWorkbook(is)) {
 
             Sheet sheet = workbook.getSheetAt(0);
@@ -318,43 +405,68 @@ public class LoyaltyService {
             // Skip header row
             if (rows.hasNext()) rows.next();
 
-            while (rows.hasNext()) {
-                Row row = rows.next();
-                Loyalty loyalty = new Loyalty();
-
-                loyalty.setName(getCellStringValue(row.getCell(0)));
-
-                int typeVal = (int) getCellNumericValue(row.getCell(1));
-                loyalty.setType(typeVal == 1 ? 1 : 0);
-
-                loyalty.setTriggerProductIds(getCellStringValue(row.getCell(2)));
-                loyalty.setRewardProductIds(getCellStringValue(row.getCell(3)));
-                loyalty.setMinQuantity(Math.max(1, (int) getCellNumericValue(row.getCell(4))));
-                loyalty.setRewardQuantity(Math.max(1, (int) getCellNumericValue(row.getCell(5))));
-                loyalty.setDiscountPercent(BigDecimal.valueOf(getCellNumericValue(row.getCell(6))));
-
-                String activeStr = getCellStringValue(row.getCell(7));
-                loyalty.setActive(activeStr.isEmpty() || "1".equals(activeStr) || "true".equalsIgnoreCase(activeStr));
-
-                String startDate = getCellStringValue(row.getCell(8));
-                if (!startDate.isEmpty()) {
-                    loyalty.setStartDate(LocalDateTime.parse(startDate, formatter));
-                } else {
-                    loyalty.setStartDate(LocalDateTime.now());
+            // Parsed here, saved in parallel chunks by the pipeline writers
+            written = runImport(sink -> {
+                while (rows.hasNext()) {
+                    Row row = rows.next();
+                    result.setRows(result.getRows() + 1);
+                    progress.rowsProcessed(1);
+                    Loyalty loyalty = new Loyalty();
+
+                    loyalty.setName(getCellStringValue(row.getCell(0)));
+
+                    int typeVal = (int) getCellNumericValue(row.getCell(1));
+                    loyalty.setType(typeVal == 1 ? 1 : 0);
+
+                    loyalty.setTriggerProductIds(getCellStringValue(row.getCell(2)));
+                    loyalty.setRewardProductIds(getCellStringValue(row.getCell(3)));
+                    loyalty.setMinQuantity(Math.max(1, (int) getCellNumericValue(row.getCell(4))));
+                    loyalty.setRewardQuantity(Math.max(1, (int) getCellNumericValue(row.getCell(5))));
+                    loyalty.setDiscountPercent(BigDecimal.valueOf(getCellNumericValue(row.getCell(6))));
+
+                    String activeStr = getCellStringValue(row.getCell(7));
+                    loyalty.setActive(activeStr.isEmpty() || "1".equals(activeStr) || "true".equalsIgnoreCase(activeStr));
+
+                    String startDate = getCellStringValue(row.getCell(8));
+                    if (!startDate.isEmpty()) {
+                        loyalty.setStartDate(LocalDateTime.parse(startDate, formatter));
+                    } else {
+                        loyalty.setStartDate(LocalDateTime.now());
+                    }
+
+                    String endDate = getCellStringValue(row.getCell(9));
+                    if (!endDate.isEmpty()) {
+                        loyalty.setEndDate(LocalDateTime.parse(endDate, formatter));
+                    } else {
+                        loyalty.setEndDate(LocalDateTime.now().plusYears(1));
+                    }
+                    sink.accept(loyalty);
                 }
+            }, this::insertAll, progress);
+        }
 
-                String endDate = getCellStringValue(row.getCell(9));
-                if (!endDate.isEmpty()) {
-                    loyalty.setEndDate(LocalDateTime.parse(endDate, formatter));
-                } else {
-                    loyalty.setEndDate(LocalDateTime.now().plusYears(1));
-                }
+        written.add(result);
+        return written;
+    }
 
-                loyalties.add(loyaltyRepository.save(loyalty));
-            }
+    /**
+     * Run an import through the pipeline and recompile the loyalty engine afterwards,
+     * also when the import failed part way (earlier chunks are committed).
+     */
+    private <T> ImportResultDTO runImport(ImportPipeline.RowSource<T> source, ImportPipeline.ChunkWriter<T> writer,
+                                          ImportProgress progress) throws Exception {
+        try {
+            return importPipeline.run(source, writer, progress);
+        } finally {
+            loyaltyEngine.refresh();
         }
+    }
 
-        return loyalties;
+    private ImportResultDTO insertAll(List<Loyalty> chunk) {
+        loyaltyRepository.saveAll(chunk);
+        ImportResultDTO result = new ImportResultDTO();
+        result.setInserted(chunk.size());
+        return result;
     }
 
     private String getCellStringValue(Cell cell) {
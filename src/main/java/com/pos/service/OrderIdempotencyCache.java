@@ -0,0 +1,50 @@
+package com.pos.service;
+
+import com.pos.dto.OrderSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently completed orders by idempotency key, so a retried submission is answered
+ * from memory. Entries are detached {@link OrderSnapshot}s built while the order was
+ * still attached, never JPA entities with lazy associations. Bounded (oldest entries
+ * drop first) and expiring; the unique {@code orders.idempotency_key} column stays the
+ * durable source of truth.
+ */
+@Component
+public class OrderIdempotencyCache {
+
+    private record Entry(OrderSnapshot order, long expiresAt) {
+    }
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    public OrderIdempotencyCache(@Value("${pos.idempotency.cache-size:10000}") int maxSize,
+                                 @Value("${pos.idempotency.ttl-minutes:60}") long ttlMinutes) {
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized OrderSnapshot get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.order();
+    }
+
+    public synchronized void put(String key, OrderSnapshot order) {
+        entries.put(key, new Entry(order, System.currentTimeMillis() + ttlMillis));
+    }
+}
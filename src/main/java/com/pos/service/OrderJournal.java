@@ -0,0 +1,455 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.model.Order;
+import com.pos.model.OrderItem;
+import com.pos.model.PosSession;
+import com.pos.model.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-ahead journal for checkout ({@code pos.journal.enabled}). A priced order
+ * is appended as one line to {@code orders.journal} and acknowledged once the line is on
+ * disk; {@link OrderJournalApplier} writes journaled orders to the database in batches
+ * afterwards, so a sale does not wait for (or fail with) a MySQL commit.
+ *
+ * Appends are group-committed: one sync thread calls {@code force} for everything written
+ * since its last pass, so concurrent checkouts share an fsync. The highest applied
+ * sequence number is kept in {@code orders.checkpoint}; on startup the lines after it are
+ * queued again, and the file is emptied whenever everything in it has been applied.
+ * Orders the database refuses for good, and lines that cannot be read back, are set
+ * aside in {@code orders.rejected} first, so emptying the journal never loses them.
+ *
+ * Single-node only: the journal lives on this node's disk, and journaled checkout checks
+ * the session against this node's {@link ActiveSessionRegistry} instead of the database.
+ * Run one backend node with it enabled, and close its sessions on that node. Order
+ * numbers and products are still needed while the database is away, so order numbers are
+ * reserved in larger blocks ({@code pos.journal.order-number-block-size}) and the active
+ * catalog is loaded at startup.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderJournal {
+
+    /**
+     * A durable order waiting to be applied.
+     */
+    public record Journaled(long seq, Order order) {
+    }
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${pos.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${pos.journal.dir:data/journal}")
+    private String dir;
+
+    // Empty the journal once it is fully applied and larger than this
+    @Value("${pos.journal.compact-bytes:67108864}")
+    private long compactBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    private final Condition ready = lock.newCondition();
+    private final Condition applied = lock.newCondition();
+
+    // Guarded by lock
+    private final ArrayDeque<Journaled> unsynced = new ArrayDeque<>();
+    private final ArrayDeque<Journaled> pending = new ArrayDeque<>();
+    private long lastSeq;
+    private long syncedSeq;
+    private long appliedSeq;
+    private IOException failure;
+    private boolean closed;
+
+    private final Map<String, Order> pendingByKey = new ConcurrentHashMap<>();
+
+    private Path journalFile;
+    private Path checkpointFile;
+    private Path rejectedFile;
+    private FileChannel channel;
+    private Thread syncer;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) return;
+        Path directory = Path.of(dir);
+        Files.createDirectories(directory);
+        journalFile = directory.resolve("orders.journal");
+        checkpointFile = directory.resolve("orders.checkpoint");
+        rejectedFile = directory.resolve("orders.rejected");
+
+        appliedSeq = Files.exists(checkpointFile)
+                ? Long.parseLong(Files.readString(checkpointFile).trim())
+                : 0;
+        lastSeq = appliedSeq;
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recover();
+        channel.position(channel.size());
+        syncedSeq = lastSeq;
+
+        syncer = new Thread(this::syncLoop, "order-journal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+        log.info("Order journal {} open: {} orders to apply after sequence {}", journalFile, pending.size(), appliedSeq);
+    }
+
+    /**
+     * Append the order and return once it is on disk. If an order with the same
+     * idempotency key is still waiting to be applied, that one is returned instead.
+     */
+    public Order append(Order order) throws IOException {
+        // Serialized outside the lock; only the write itself is ordered
+        byte[] json = objectMapper.writeValueAsBytes(Entry.of(order));
+        String key = order.getIdempotencyKey();
+        long seq;
+        lock.lock();
+        try {
+            if (closed) throw new IllegalStateException("Order journal is closed");
+            if (failure != null) throw new IOException("Order journal failed", failure);
+            if (key != null) {
+                Order existing = pendingByKey.putIfAbsent(key, order);
+                if (existing != null) return existing;
+            }
+            seq = lastSeq + 1;
+            try {
+                writeFully((seq + " ").getBytes(StandardCharsets.US_ASCII), json, new byte[]{'\n'});
+            } catch (IOException e) {
+                if (key != null) pendingByKey.remove(key, order);
+                throw e;
+            }
+            lastSeq = seq;
+            unsynced.add(new Journaled(seq, order));
+            written.signal();
+
+            while (syncedSeq < seq && failure == null) {
+                synced.awaitUninterruptibly();
+            }
+            if (syncedSeq < seq) throw new IOException("Order journal sync failed", failure);
+        } finally {
+            lock.unlock();
+        }
+        return order;
+    }
+
+    /**
+     * Order with this idempotency key that is journaled but not applied yet, or null.
+     */
+    public Order findPending(String idempotencyKey) {
+        return pendingByKey.get(idempotencyKey);
+    }
+
+    /**
+     * The oldest orders waiting to be applied (at most {@code max}), waiting up to
+     * {@code timeoutMs} for one to arrive. They stay queued until {@link #markApplied}.
+     */
+    public List<Journaled> awaitBatch(int max, long timeoutMs) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (pending.isEmpty() && nanos > 0) {
+                nanos = ready.awaitNanos(nanos);
+            }
+            List<Journaled> batch = new ArrayList<>(Math.min(max, pending.size()));
+            for (Journaled j : pending) {
+                if (batch.size() == max) break;
+                batch.add(j);
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The batch (taken from {@link #awaitBatch}) is in the database: move the checkpoint
+     * past it and drop it from the queue.
+     */
+    public void markApplied(List<Journaled> batch) throws IOException {
+        if (batch.isEmpty()) return;
+        long seq = batch.get(batch.size() - 1).seq();
+        writeCheckpoint(seq);
+        lock.lock();
+        try {
+            while (!pending.isEmpty() && pending.peekFirst().seq() <= seq) {
+                Order order = pending.pollFirst().order();
+                if (order.getIdempotencyKey() != null) pendingByKey.remove(order.getIdempotencyKey(), order);
+            }
+            appliedSeq = seq;
+            applied.signalAll();
+            if (lastSeq == appliedSeq && channel.size() > compactBytes) {
+                channel.truncate(0);
+                channel.force(true);
+                log.info("Order journal compacted at sequence {}", seq);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Set an order the database refused aside, with the reason, so the rest can be applied.
+     */
+    public void reject(Journaled journaled, String reason) throws IOException {
+        setAside(journaled.seq() + " " + objectMapper.writeValueAsString(Entry.of(journaled.order())), reason);
+        log.error("Journaled order {} (sequence {}) rejected by the database and moved to {}: {}",
+                journaled.order().getOrderNumber(), journaled.seq(), rejectedFile, reason);
+    }
+
+    /**
+     * Wait until every order acknowledged so far is in the database. Returns false on timeout.
+     */
+    public boolean awaitApplied(long timeoutMs) {
+        if (!enabled) return true;
+        lock.lock();
+        try {
+            long target = lastSeq;
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (appliedSeq < target && nanos > 0) {
+                try {
+                    nanos = applied.awaitNanos(nanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return appliedSeq >= target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Refuse further appends (shutdown); orders already journaled can still be applied.
+     */
+    public void stopAppends() {
+        lock.lock();
+        try {
+            closed = true;
+            written.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (!enabled) return;
+        stopAppends();
+        syncer.join(5000);
+        channel.close();
+    }
+
+    // Group commit: one force for every line written since the previous one
+    private void syncLoop() {
+        while (true) {
+            long target;
+            lock.lock();
+            try {
+                while (syncedSeq == lastSeq && !closed) {
+                    written.awaitUninterruptibly();
+                }
+                if (syncedSeq == lastSeq) return;
+                target = lastSeq;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    log.error("Order journal fsync failed; journaled checkout fails until restart", error);
+                    failure = error;
+                    synced.signalAll();
+                    return;
+                }
+                while (!unsynced.isEmpty() && unsynced.peekFirst().seq() <= target) {
+                    pending.add(unsynced.pollFirst());
+                }
+                syncedSeq = target;
+                synced.signalAll();
+                ready.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void writeFully(byte[]... parts) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[parts.length];
+        for (int i = 0; i < parts.length; i++) buffers[i] = ByteBuffer.wrap(parts[i]);
+        while (buffers[buffers.length - 1].hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    // One line of orders.rejected: the journal line as it was, then the reason as a JSON string
+    private void setAside(String line, String reason) throws IOException {
+        Files.writeString(rejectedFile, line + " " + objectMapper.writeValueAsString(reason) + "\n",
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    private void writeCheckpoint(long seq) throws IOException {
+        Path tmp = checkpointFile.resolveSibling("orders.checkpoint.tmp");
+        Files.writeString(tmp, Long.toString(seq), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Queue the lines after the checkpoint; set aside unreadable lines and one torn by a crash mid-write
+    private void recover() throws IOException {
+        long goodLength = 0;
+        channel.position(0);
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        long offset = 0;
+        String line;
+        String torn = null;
+        while ((line = reader.readLine()) != null) {
+            offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (offset > channel.size()) { // last line has no newline: torn
+                torn = line;
+                break;
+            }
+            int space = line.indexOf(' ');
+            try {
+                long seq = Long.parseLong(line.substring(0, space));
+                lastSeq = Math.max(lastSeq, seq);
+                if (seq > appliedSeq) {
+                    Order order = objectMapper.readValue(line.substring(space + 1), Entry.class).toOrder();
+                    pending.add(new Journaled(seq, order));
+                    if (order.getIdempotencyKey() != null) pendingByKey.put(order.getIdempotencyKey(), order);
+                }
+            } catch (RuntimeException | IOException e) {
+                log.error("Unreadable order journal line at byte {} moved to {}: {}", goodLength, rejectedFile,
+                        e.getMessage());
+                setAside(line, "unreadable journal line: " + e.getMessage());
+            }
+            goodLength = offset;
+        }
+        if (goodLength < channel.size()) {
+            log.warn("Order journal ends in a partial line; moving {} bytes to {}", channel.size() - goodLength,
+                    rejectedFile);
+            if (torn != null) setAside(torn, "partial journal line");
+            channel.truncate(goodLength);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * One journal line: the priced order as it was acknowledged.
+     */
+    record Entry(Long sessionId, String cashierName, String idempotencyKey, String orderNumber,
+                 Order.OrderType orderType, Order.OrderStatus status, String originalOrderNumber,
+                 String returnReason, String customerName, String customerPhone, String customerVat,
+                 BigDecimal subtotal, BigDecimal discountAmount, BigDecimal taxAmount, BigDecimal totalAmount,
+                 Order.PaymentMethod paymentMethod, String notes, LocalDateTime createdAt, List<Line> items) {
+
+        record Line(Long productId, String barcode, String name, Integer quantity, BigDecimal unitPrice,
+                    BigDecimal subtotal, BigDecimal discount, BigDecimal taxRate, BigDecimal taxAmount,
+                    BigDecimal totalPrice, String promotionName, boolean reward) {
+        }
+
+        static Entry of(Order o) {
+            List<Line> lines = o.getItems().stream()
+                    .map(i -> new Line(i.getProduct().getId(), i.getProductBarcode(), i.getProductName(),
+                            i.getQuantity(), i.getUnitPrice(), i.getSubtotal(), i.getDiscount(), i.getTaxRate(),
+                            i.getTaxAmount(), i.getTotalPrice(), i.getPromotionName(), i.isReward()))
+                    .toList();
+            return new Entry(o.getSessionId(), o.getCashierName(), o.getIdempotencyKey(), o.getOrderNumber(),
+                    o.getOrderType(), o.getStatus(), o.getOriginalOrderNumber(), o.getReturnReason(),
+                    o.getCustomerName(), o.getCustomerPhone(), o.getCustomerVat(), o.getSubtotal(),
+                    o.getDiscountAmount(), o.getTaxAmount(), o.getTotalAmount(), o.getPaymentMethod(), o.getNotes(),
+                    o.getCreatedAt(), lines);
+        }
+
+        Order toOrder() {
+            Order order = new Order();
+            PosSession session = new PosSession();
+            session.setId(sessionId);
+            session.setCashierName(cashierName);
+            order.setSession(session);
+            order.setSessionId(sessionId);
+            order.setCashierName(cashierName);
+            order.setIdempotencyKey(idempotencyKey);
+            order.setOrderNumber(orderNumber);
+            order.setOrderType(orderType);
+            order.setStatus(status);
+            order.setOriginalOrderNumber(originalOrderNumber);
+            order.setReturnReason(returnReason);
+            order.setCustomerName(customerName);
+            order.setCustomerPhone(customerPhone);
+            order.setCustomerVat(customerVat);
+            order.setSubtotal(subtotal);
+            order.setDiscountAmount(discountAmount);
+            order.setTaxAmount(taxAmount);
+            order.setTotalAmount(totalAmount);
+            order.setPaymentMethod(paymentMethod);
+            order.setNotes(notes);
+            order.setCreatedAt(createdAt);
+            order.setSyncStatus(false);
+            for (Line line : items) {
+                Product product = new Product();
+                product.setId(line.productId());
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setProduct(product);
+                item.setProductBarcode(line.barcode());
+                item.setProductName(line.name());
+                item.setQuantity(line.quantity());
+                item.setUnitPrice(line.unitPrice());
+                item.setSubtotal(line.subtotal());
+                item.setDiscount(line.discount());
+                item.setTaxRate(line.taxRate());
+                item.setTaxAmount(line.taxAmount());
+                item.setTotalPrice(line.totalPrice());
+                item.setPromotionName(line.promotionName());
+                item.setReward(line.reward());
+                order.getItems().add(item);
+            }
+            return order;
+        }
+    }
+}
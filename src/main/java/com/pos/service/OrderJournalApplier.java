@@ -0,0 +1,124 @@
+package com.pos.service;
+
+import com.pos.dto.OrderSnapshot;
+import com.pos.model.Order;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Writes journaled orders (see {@link OrderJournal}) to the database, oldest first, one
+ * transaction per batch. While the database is unreachable the batch is retried with
+ * backoff and checkout keeps journaling. A batch that violates a constraint is retried
+ * order by order, and an order that still fails is set aside, so one bad entry cannot
+ * hold up the rest. Started once the application is ready, so orders recovered from the
+ * journal go in first; on shutdown the journal is drained before the context closes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderJournalApplier {
+
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final OrderJournal journal;
+    private final OrderService orderService;
+    private final OrderIdempotencyCache idempotencyCache;
+    private final ProductCatalogIndex catalogIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${pos.journal.apply-batch-size:200}")
+    private int batchSize;
+
+    @Value("${pos.journal.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!journal.isEnabled()) return;
+        try {
+            log.info("Loaded {} products for journaled checkout", catalogIndex.preload());
+        } catch (RuntimeException e) {
+            log.warn("Could not load the catalog for journaled checkout; products load on first use: {}",
+                    e.getMessage());
+        }
+        running = true;
+        worker = new Thread(this::run, "order-journal-apply");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        if (worker == null) return;
+        journal.stopAppends();
+        if (!journal.awaitApplied(drainTimeoutMs)) {
+            log.warn("Order journal not fully applied at shutdown; the rest is applied on the next start");
+        }
+        running = false;
+        worker.interrupt();
+        worker.join(5000);
+    }
+
+    private void run() {
+        long backoff = 0;
+        while (running) {
+            try {
+                if (backoff > 0) Thread.sleep(backoff);
+                List<OrderJournal.Journaled> batch = journal.awaitBatch(batchSize, 1000);
+                if (batch.isEmpty()) continue;
+                apply(batch);
+                journal.markApplied(batch);
+                backoff = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                backoff = Math.min(MAX_BACKOFF_MS, Math.max(500, backoff * 2));
+                log.warn("Applying journaled orders failed, retrying in {} ms: {}", backoff, e.getMessage());
+            }
+        }
+    }
+
+    private void apply(List<OrderJournal.Journaled> batch) throws Exception {
+        try {
+            insert(batch.stream().map(OrderJournal.Journaled::order).toList());
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                journal.reject(batch.get(0), e.getMostSpecificCause().getMessage());
+                return;
+            }
+            for (OrderJournal.Journaled journaled : batch) {
+                apply(List.of(journaled));
+            }
+        }
+    }
+
+    private void insert(List<Order> orders) {
+        try {
+            List<OrderSnapshot> inserted = transactionTemplate.execute(status ->
+                    orderService.saveJournaled(orders).stream().map(OrderSnapshot::of).toList());
+            for (OrderSnapshot order : inserted) {
+                if (order.getIdempotencyKey() != null) idempotencyCache.put(order.getIdempotencyKey(), order);
+            }
+        } catch (RuntimeException e) {
+            // Rolled back: the ids handed out are void, the next attempt needs new ones
+            for (Order order : orders) {
+                order.setId(null);
+                order.getItems().forEach(item -> item.setId(null));
+            }
+            throw e;
+        }
+    }
+}
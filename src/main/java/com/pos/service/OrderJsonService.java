@@ -0,0 +1,218 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.model.Order;
+import com.pos.model.OrderItem;
+import com.pos.repository.OrderJsonRepository;
+import com.pos.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The Odoo sync document of an order, written with Jackson's streaming generator (no
+ * tree, no pretty-printing) and stored gzipped in {@code orders.order_json_gz}.
+ *
+ * Nothing is generated while a sale is checked out. The document is built the first time
+ * it is read (GET /api/orders/{id}/json, a sync claim) or by the background fill, from
+ * the stored order and its items, which never change after the sale. Generation is
+ * deterministic, so the bytes are the same whichever of these gets there first.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderJsonService {
+
+    private final OrderRepository orderRepository;
+    private final OrderJsonRepository jsonRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${pos.order-json.fill-batch-size:200}")
+    private int fillBatchSize;
+
+    /**
+     * The order's document, generated and stored now if it has none yet. Empty if the
+     * order does not exist.
+     */
+    public Optional<String> getJson(Long orderId) {
+        Optional<OrderJsonRepository.Stored> stored = jsonRepository.find(orderId);
+        if (stored.isEmpty()) return Optional.empty();
+        if (stored.get().legacy() != null && stored.get().gzip() == null) {
+            return Optional.of(stored.get().legacy());
+        }
+        byte[] gzip = stored.get().gzip() != null
+                ? stored.get().gzip()
+                : materialize(List.of(orderId)).get(orderId);
+        return Optional.ofNullable(gzip).map(g -> new String(gunzip(g), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Generate and store the documents of these orders in one read and one batched
+     * update. Returns the gzipped documents by order id.
+     */
+    public Map<Long, byte[]> materialize(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) return Map.of();
+        return transactionTemplate.execute(status -> {
+            Map<Long, byte[]> gzipById = new HashMap<>();
+            for (Order order : orderRepository.findWithItemsByIdIn(orderIds)) {
+                gzipById.put(order.getId(), gzip(order));
+            }
+            jsonRepository.store(gzipById);
+            return gzipById;
+        });
+    }
+
+    /**
+     * Background stage: give unsynced orders their document ahead of the next sync claim.
+     */
+    @Scheduled(fixedDelayString = "${pos.order-json.fill-interval-ms:1000}")
+    public void fillPending() {
+        try {
+            List<Long> ids;
+            do {
+                ids = jsonRepository.findUnsyncedWithoutJson(fillBatchSize);
+                materialize(ids);
+            } while (ids.size() == fillBatchSize);
+        } catch (Exception e) {
+            log.warn("Order JSON fill failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A stored document as a stream: the gzipped one, else the legacy text. Null when the
+     * order has neither yet.
+     */
+    public static InputStream open(byte[] gzip, String legacy) throws IOException {
+        if (gzip != null) return new GZIPInputStream(new ByteArrayInputStream(gzip));
+        if (legacy != null) return new ByteArrayInputStream(legacy.getBytes(StandardCharsets.UTF_8));
+        return null;
+    }
+
+    private byte[] gzip(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try {
+            // Closing the generator finishes the gzip stream
+            write(order, new GZIPOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] gzip) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the document: {@code {"draft":false,"orders":[...]}} for a sale,
+     * {@code {"returns":[...]}} for a return. Closes {@code out}.
+     */
+    private void write(Order order, OutputStream out) throws IOException {
+        // In the order they were rung up (ids are handed out in that order)
+        List<OrderItem> items = order.getItems().stream().sorted(Comparator.comparing(OrderItem::getId)).toList();
+
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            if (order.getOrderType() == Order.OrderType.SALE) {
+                writeSale(json, order, items);
+            } else {
+                writeReturn(json, order, items);
+            }
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeSale(JsonGenerator json, Order order, List<OrderItem> items) throws IOException {
+        json.writeBooleanField("draft", false);
+        json.writeArrayFieldStart("orders");
+        json.writeStartObject();
+        json.writeStringField("id", order.getOrderNumber());
+
+        json.writeObjectFieldStart("data");
+        json.writeStringField("name", "Order " + order.getOrderNumber());
+        json.writeNumberField("amount_paid", order.getTotalAmount().doubleValue());
+        json.writeNumberField("amount_total", order.getTotalAmount().doubleValue());
+        json.writeNumberField("amount_tax", order.getTaxAmount().doubleValue());
+        json.writeNumberField("amount_return", 0);
+
+        json.writeObjectFieldStart("customer");
+        json.writeStringField("phone", order.getCustomerPhone() != null ? order.getCustomerPhone() : "");
+        json.writeStringField("name", order.getCustomerName() != null ? order.getCustomerName() : "");
+        if (order.getCustomerVat() != null && !order.getCustomerVat().isEmpty()) {
+            json.writeStringField("vat", order.getCustomerVat());
+        }
+        json.writeEndObject();
+
+        json.writeArrayFieldStart("order_lines");
+        for (OrderItem item : items) {
+            json.writeStartObject();
+            json.writeNumberField("qty", item.getQuantity());
+            // Reward items are invoiced at 0
+            if (item.isReward()) {
+                json.writeNumberField("price_unit", 0);
+            } else {
+                json.writeNumberField("price_unit", item.getUnitPrice().doubleValue());
+            }
+            json.writeNumberField("product_id", item.getProduct().getId());
+            json.writeNumberField("discount", item.getDiscount().doubleValue());
+            if (item.getPromotionName() != null) {
+                json.writeStringField("promotion", item.getPromotionName());
+            }
+            if (item.isReward()) {
+                json.writeBooleanField("is_reward", true);
+            }
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+
+        json.writeEndObject();
+        json.writeEndObject();
+        json.writeEndArray();
+    }
+
+    private static void writeReturn(JsonGenerator json, Order order, List<OrderItem> items) throws IOException {
+        json.writeArrayFieldStart("returns");
+        json.writeStartObject();
+        json.writeStringField("sale_order_name", order.getOriginalOrderNumber());
+
+        json.writeArrayFieldStart("return_lines");
+        for (OrderItem item : items) {
+            json.writeStartObject();
+            json.writeNumberField("qty", Math.abs(item.getQuantity())); // Always positive in return JSON
+            json.writeNumberField("price_unit", item.getUnitPrice().doubleValue());
+            json.writeNumberField("product_id", item.getProduct().getId());
+            json.writeNumberField("discount", item.getDiscount().doubleValue());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeStringField("reason", order.getReturnReason() != null ? order.getReturnReason() : "Customer return");
+
+        json.writeEndObject();
+        json.writeEndArray();
+    }
+}
@@ -1,34 +1,98 @@
 package com.pos.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pos.dto.BatchOrderDTO;
+import com.pos.dto.BatchOrderResultDTO;
+import com.pos.dto.CartItemDTO;
 import com.pos.dto.CreateOrderDTO;
 import com.pos.dto.OrderSearchDTO;
+import com.pos.dto.OrderSearchPageDTO;
+import com.pos.dto.OrderSnapshot;
+import com.pos.dto.OrderSummaryDTO;
+import com.pos.dto.ProductSnapshot;
 import com.pos.model.*;
 import com.pos.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final int DEFAULT_SEARCH_PAGE = 50;
+    private static final int MAX_SEARCH_PAGE = 500;
+
     private final OrderRepository orderRepository;
+    private final OrderSearchRepository orderSearchRepository;
     private final PosSessionRepository sessionRepository;
-    private final ProductRepository productRepository;
-    private final ObjectMapper objectMapper;
+    private final ProductCatalogIndex catalogIndex;
+    private final StockService stockService;
+    private final OrderNumberAllocator orderNumberAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderIdempotencyCache idempotencyCache;
+    private final SessionTotals sessionTotals;
+    private final OrderJsonService orderJsonService;
+    private final OrderJournal orderJournal;
+    private final ActiveSessionRegistry sessionRegistry;
+    private final PricingEngine pricingEngine;
+    private final LoyaltyEngine loyaltyEngine;
+
+    // Sale discounts, rewards and promotions come from LoyaltyEngine, not from the terminal
+    @Value("${pos.loyalty.server-pricing:false}")
+    private boolean serverPricing;
+
+    public OrderSnapshot createOrder(Long sessionId, CreateOrderDTO dto) throws Exception {
+        return createOrder(sessionId, dto, null);
+    }
 
-    @Transactional
-    public Order createOrder(Long sessionId, CreateOrderDTO dto) throws Exception {
+    /**
+     * Create an order. With an idempotency key, a repeated submission (a terminal retrying
+     * after a timeout) returns the order already stored under that key without pricing,
+     * inserting or touching the session totals again.
+     *
+     * With the order journal enabled the order is acknowledged once it is journaled; it
+     * has no id until {@link OrderJournalApplier} has written it to the database.
+     */
+    public OrderSnapshot createOrder(Long sessionId, CreateOrderDTO dto, String idempotencyKey) throws Exception {
+        if (idempotencyKey != null) {
+            OrderSnapshot existing = findByIdempotencyKey(idempotencyKey);
+            if (existing != null) return requireSameSession(existing, sessionId);
+        }
+        if (orderJournal.isEnabled()) {
+            return journalOrder(sessionId, dto, idempotencyKey);
+        }
+
+        try {
+            OrderSnapshot order = transactionTemplate.execute(status -> {
+                try {
+                    return OrderSnapshot.of(insertOrder(sessionId, dto, idempotencyKey));
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+            });
+            if (idempotencyKey != null) idempotencyCache.put(idempotencyKey, order);
+            return order;
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent retry with the same key committed first
+            if (idempotencyKey == null) throw e;
+            OrderSnapshot existing = orderRepository.findDetailedByIdempotencyKey(idempotencyKey)
+                    .map(OrderSnapshot::of).orElseThrow(() -> e);
+            idempotencyCache.put(idempotencyKey, existing);
+            return requireSameSession(existing, sessionId);
+        }
+    }
+
+    private Order insertOrder(Long sessionId, CreateOrderDTO dto, String idempotencyKey) throws Exception {
         PosSession session = sessionRepository.findById(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found"));
 
@@ -36,6 +100,233 @@ public class OrderService {
             throw new RuntimeException("Session is not active");
         }
 
+        // Resolve every barcode in the cart up front (one query for anything not cached)
+        Map<String, ProductSnapshot> products = resolveProducts(dto.getItems());
+        Order order = buildOrder(session, dto, products);
+        order.setIdempotencyKey(idempotencyKey);
+
+        Order savedOrder = orderRepository.save(order);
+        orderRepository.flush();
+
+        // Session totals and stock move once the order commits
+        sessionTotals.recordAfterCommit(session.getId(), List.of(order));
+        stockService.recordAfterCommit(stockMovements(List.of(order)));
+
+        return savedOrder;
+    }
+
+    /**
+     * Price the order and append it to the journal, reading nothing from the database
+     * unless a product is missing from the catalog cache.
+     */
+    private OrderSnapshot journalOrder(Long sessionId, CreateOrderDTO dto, String idempotencyKey) throws Exception {
+        String cashierName = sessionRegistry.cashierOfOpenSession(sessionId).orElseThrow(() ->
+                new RuntimeException(sessionRepository.existsById(sessionId) ? "Session is not active" : "Session not found"));
+
+        // Stands in for the session row; replaced by a reference when the order is applied
+        PosSession session = new PosSession();
+        session.setId(sessionId);
+        session.setCashierName(cashierName);
+
+        Map<String, ProductSnapshot> products = resolveProducts(dto.getItems());
+        Order order = buildOrder(session, dto, products);
+        order.setSessionId(sessionId);
+        order.setIdempotencyKey(idempotencyKey);
+        order.setCreatedAt(LocalDateTime.now());
+
+        OrderSnapshot journaled = OrderSnapshot.of(orderJournal.append(order));
+        if (idempotencyKey != null) idempotencyCache.put(idempotencyKey, journaled);
+        return requireSameSession(journaled, sessionId);
+    }
+
+    /**
+     * Insert orders acknowledged through the journal, in the caller's transaction. Orders
+     * already stored by an earlier run (a crash before the checkpoint moved) are skipped.
+     * Returns the orders inserted.
+     */
+    public List<Order> saveJournaled(List<Order> orders) {
+        Set<String> stored = new HashSet<>(orderRepository.findExistingOrderNumbers(
+                orders.stream().map(Order::getOrderNumber).toList()));
+        List<Order> fresh = orders.stream().filter(o -> !stored.contains(o.getOrderNumber())).toList();
+        if (fresh.isEmpty()) return fresh;
+
+        Map<Long, List<Order>> bySession = new LinkedHashMap<>();
+        for (Order order : fresh) {
+            order.setSession(sessionRepository.getReferenceById(order.getSessionId()));
+            bySession.computeIfAbsent(order.getSessionId(), k -> new ArrayList<>()).add(order);
+        }
+        orderRepository.saveAll(fresh);
+        orderRepository.flush();
+
+        bySession.forEach(sessionTotals::recordAfterCommit);
+        stockService.recordAfterCommit(stockMovements(fresh));
+        return fresh;
+    }
+
+    private OrderSnapshot findByIdempotencyKey(String idempotencyKey) {
+        OrderSnapshot cached = idempotencyCache.get(idempotencyKey);
+        if (cached != null) return cached;
+        Order journaled = orderJournal.findPending(idempotencyKey);
+        if (journaled != null) return OrderSnapshot.of(journaled);
+        OrderSnapshot stored = orderRepository.findDetailedByIdempotencyKey(idempotencyKey)
+                .map(OrderSnapshot::of).orElse(null);
+        if (stored != null) idempotencyCache.put(idempotencyKey, stored);
+        return stored;
+    }
+
+    private static OrderSnapshot requireSameSession(OrderSnapshot order, Long sessionId) {
+        if (!order.getSessionId().equals(sessionId)) {
+            throw new RuntimeException("Idempotency key was already used for another session");
+        }
+        return order;
+    }
+
+    /**
+     * Replay orders queued offline by terminals. Orders are grouped by session and each
+     * group is saved in one transaction with batched inserts, and its session totals
+     * are added in one go. An order that fails validation (unknown barcode, bad payload) is reported
+     * and left out without affecting the rest of its group; a session that is missing,
+     * closed or fails at commit fails all of its orders. Orders whose idempotency key was
+     * already used (earlier or within the same batch) come back as DUPLICATE with the
+     * stored order. Results keep the request order.
+     */
+    public List<BatchOrderResultDTO> createOrders(List<BatchOrderDTO> batch) {
+        List<BatchOrderResultDTO> results = new ArrayList<>(batch.size());
+        Map<Long, List<Integer>> bySession = new LinkedHashMap<>();
+        List<String> barcodes = new ArrayList<>();
+
+        // Keys already stored: cache first, then one query for the rest
+        Map<String, OrderSnapshot> existing = new HashMap<>();
+        List<String> uncachedKeys = new ArrayList<>();
+        for (BatchOrderDTO entry : batch) {
+            String key = entry.getIdempotencyKey();
+            if (key == null || existing.containsKey(key)) continue;
+            OrderSnapshot cached = idempotencyCache.get(key);
+            if (cached != null) existing.put(key, cached);
+            else uncachedKeys.add(key);
+        }
+        if (!uncachedKeys.isEmpty()) {
+            for (Order order : orderRepository.findDetailedByIdempotencyKeyIn(uncachedKeys)) {
+                OrderSnapshot snapshot = OrderSnapshot.of(order);
+                existing.put(order.getIdempotencyKey(), snapshot);
+                idempotencyCache.put(order.getIdempotencyKey(), snapshot);
+            }
+        }
+
+        Map<String, Integer> firstByKey = new HashMap<>();
+        Map<Integer, Integer> repeats = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            BatchOrderDTO entry = batch.get(i);
+            BatchOrderResultDTO result = new BatchOrderResultDTO();
+            result.setIndex(i);
+            result.setClientRef(entry.getClientRef());
+            result.setSessionId(entry.getSessionId());
+            result.setStatus("FAILED");
+            results.add(result);
+
+            String key = entry.getIdempotencyKey();
+            if (key != null && existing.containsKey(key)) {
+                OrderSnapshot order = existing.get(key);
+                result.setStatus("DUPLICATE");
+                result.setOrderId(order.getId());
+                result.setOrderNumber(order.getOrderNumber());
+                continue;
+            }
+            if (key != null && firstByKey.containsKey(key)) {
+                repeats.put(i, firstByKey.get(key));
+                continue;
+            }
+            if (entry.getSessionId() == null || entry.getOrder() == null || entry.getOrder().getItems() == null) {
+                result.setError("sessionId and order items are required");
+                continue;
+            }
+            if (key != null) firstByKey.put(key, i);
+            bySession.computeIfAbsent(entry.getSessionId(), k -> new ArrayList<>()).add(i);
+            entry.getOrder().getItems().forEach(item -> barcodes.add(item.getBarcode()));
+        }
+
+        // One catalog lookup for every barcode in the batch
+        Map<String, ProductSnapshot> products = catalogIndex.lookupAll(barcodes);
+
+        bySession.forEach((sessionId, indexes) -> {
+            try {
+                Map<Integer, OrderSnapshot> created = transactionTemplate.execute(status ->
+                        saveSessionOrders(sessionId, indexes, batch, products, results));
+                created.forEach((i, order) -> {
+                    BatchOrderResultDTO result = results.get(i);
+                    result.setStatus("CREATED");
+                    result.setOrderId(order.getId());
+                    result.setOrderNumber(order.getOrderNumber());
+                    if (order.getIdempotencyKey() != null) {
+                        idempotencyCache.put(order.getIdempotencyKey(), order);
+                    }
+                });
+            } catch (Exception e) {
+                for (int i : indexes) {
+                    if (results.get(i).getError() == null) results.get(i).setError(e.getMessage());
+                }
+            }
+        });
+
+        // Same key twice in one batch: the later entries mirror the first one
+        repeats.forEach((i, first) -> {
+            BatchOrderResultDTO result = results.get(i);
+            BatchOrderResultDTO original = results.get(first);
+            if (original.getOrderId() != null) {
+                result.setStatus("DUPLICATE");
+                result.setOrderId(original.getOrderId());
+                result.setOrderNumber(original.getOrderNumber());
+            } else {
+                result.setError(original.getError());
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Build and save one session's share of a batch. Returns the saved orders by request
+     * index; per-order validation errors are written straight into {@code results}.
+     */
+    private Map<Integer, OrderSnapshot> saveSessionOrders(Long sessionId, List<Integer> indexes, List<BatchOrderDTO> batch,
+                                                  Map<String, ProductSnapshot> products,
+                                                  List<BatchOrderResultDTO> results) {
+        PosSession session = sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException("Session not found"));
+        if (!session.isActive()) {
+            throw new RuntimeException("Session is not active");
+        }
+
+        Map<Integer, Order> orders = new LinkedHashMap<>();
+        for (int i : indexes) {
+            try {
+                CreateOrderDTO dto = batch.get(i).getOrder();
+                requireProducts(dto.getItems(), products);
+                Order order = buildOrder(session, dto, products);
+                order.setIdempotencyKey(batch.get(i).getIdempotencyKey());
+                orders.put(i, order);
+            } catch (Exception e) {
+                results.get(i).setError(e.getMessage());
+            }
+        }
+        if (orders.isEmpty()) return Map.of();
+
+        orderRepository.saveAll(orders.values());
+        orderRepository.flush();
+
+        List<Order> saved = new ArrayList<>(orders.values());
+        sessionTotals.recordAfterCommit(session.getId(), saved);
+        stockService.recordAfterCommit(stockMovements(saved));
+
+        Map<Integer, OrderSnapshot> snapshots = new LinkedHashMap<>();
+        orders.forEach((i, order) -> snapshots.put(i, OrderSnapshot.of(order)));
+        return snapshots;
+    }
+
+    /**
+     * Build a complete order (items, totals, order number) without saving it.
+     * Every cart barcode must already be present in {@code products}.
+     */
+    private Order buildOrder(PosSession session, CreateOrderDTO dto, Map<String, ProductSnapshot> products) throws Exception {
         Order order = new Order();
         order.setSession(session);
         order.setCashierName(session.getCashierName());
@@ -58,65 +349,69 @@ public class OrderService {
         }
 
         // Generate order number
-        String orderNumber = generateOrderNumber(session);
+        String orderNumber = orderNumberAllocator.next(session.getId());
         order.setOrderNumber(orderNumber);
 
-        BigDecimal subtotal = BigDecimal.ZERO;
-        BigDecimal discountTotal = BigDecimal.ZERO;
-        BigDecimal taxTotal = BigDecimal.ZERO;
+        // Returns keep the terminal's values: they refund what the original sale charged
+        List<LoyaltyEngine.LineLoyalty> loyalty = serverPricing && orderType == Order.OrderType.SALE
+                ? loyaltyEngine.evaluate(dto.getItems().stream()
+                        .map(item -> new LoyaltyEngine.CartLine(item.getBarcode(), item.getQuantity(),
+                                products.get(item.getBarcode()).getPrice()))
+                        .toList())
+                : null;
 
         // Process items
+        List<PricingEngine.LineInput> lines = new ArrayList<>(dto.getItems().size());
         for (var item : dto.getItems()) {
-            Product product = productRepository.findByBarcode(item.getBarcode())
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + item.getBarcode()));
+            ProductSnapshot product = products.get(item.getBarcode());
+            // Lines no loyalty program covers keep the terminal's discount (promotions, manual)
+            LoyaltyEngine.LineLoyalty lineLoyalty = loyalty != null ? loyalty.get(lines.size()) : null;
+            if (lineLoyalty != null && !lineLoyalty.covered()) lineLoyalty = null;
 
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
-            orderItem.setProduct(product);
+            orderItem.setProduct(product.toEntity());
             orderItem.setProductBarcode(item.getBarcode()); // Use barcode from DTO (frontend)
             orderItem.setProductName(product.getName());
-            orderItem.setQuantity(item.getQuantity());
             orderItem.setUnitPrice(product.getPrice());
             orderItem.setTaxRate(product.getTaxRate()); // FIX: Add tax rate
 
             // For return orders, make quantities negative
             int actualQuantity = orderType == Order.OrderType.RETURN ? -Math.abs(item.getQuantity()) : item.getQuantity();
             orderItem.setQuantity(actualQuantity);
-
-            BigDecimal lineSubtotal = product.getPrice().multiply(BigDecimal.valueOf(Math.abs(actualQuantity)));
-            BigDecimal lineDiscount = item.getDiscount() != null ? item.getDiscount() : BigDecimal.ZERO;
-            BigDecimal lineTax = lineSubtotal.subtract(lineDiscount)
-                    .multiply(product.getTaxRate())
-                    .setScale(2, RoundingMode.HALF_UP);
-
-            orderItem.setSubtotal(lineSubtotal); // FIX: Add subtotal
-            orderItem.setDiscount(lineDiscount);
-            orderItem.setTaxAmount(lineTax);
-            orderItem.setTotalPrice(lineSubtotal.subtract(lineDiscount).add(lineTax));
-            orderItem.setPromotionName(item.getPromotionName());
-            orderItem.setReward(item.getIsReward() != null ? item.getIsReward() : false);
+            BigDecimal discount;
+            if (lineLoyalty != null) {
+                orderItem.setPromotionName(lineLoyalty.promotionName());
+                orderItem.setReward(lineLoyalty.reward());
+                discount = lineLoyalty.discount();
+            } else {
+                orderItem.setPromotionName(item.getPromotionName());
+                orderItem.setReward(item.getIsReward() != null ? item.getIsReward() : false);
+                discount = item.getDiscount();
+            }
 
             order.getItems().add(orderItem);
-
-            subtotal = subtotal.add(lineSubtotal);
-            discountTotal = discountTotal.add(lineDiscount);
-            taxTotal = taxTotal.add(lineTax);
+            lines.add(new PricingEngine.LineInput(product.getPrice(), actualQuantity, discount, product.getTaxRate()));
         }
 
-        // For return orders, negate totals
-        if (orderType == Order.OrderType.RETURN) {
-            subtotal = subtotal.negate();
-            discountTotal = discountTotal.negate();
-            taxTotal = taxTotal.negate();
+        // Return totals come back negated
+        PricingEngine.Quote quote = pricingEngine.price(lines, orderType == Order.OrderType.RETURN);
+        for (int i = 0; i < lines.size(); i++) {
+            OrderItem orderItem = order.getItems().get(i);
+            PricingEngine.PricedLine priced = quote.lines().get(i);
+            orderItem.setSubtotal(priced.subtotal());
+            orderItem.setDiscount(priced.discount());
+            orderItem.setTaxAmount(priced.taxAmount());
+            orderItem.setTotalPrice(priced.totalPrice());
         }
 
-        order.setSubtotal(subtotal);
-        order.setDiscountAmount(discountTotal);
-        order.setTaxAmount(taxTotal);
-        order.setTotalAmount(subtotal.subtract(discountTotal).add(taxTotal));
+        order.setSubtotal(quote.subtotal());
+        order.setDiscountAmount(quote.discountAmount());
+        order.setTaxAmount(quote.taxAmount());
+        order.setTotalAmount(quote.totalAmount());
 
         try {
-            Order.PaymentMethod paymentMethod = Order.PaymentMethod.valueOf(dto.getPaymentMethod().toUpperCase());
+            Order.PaymentMethod paymentMethod = Order.PaymentMethod.valueOf(String.valueOf(dto.getPaymentMethod()).toUpperCase());
             order.setPaymentMethod(paymentMethod);
         } catch (IllegalArgumentException e) {
             order.setPaymentMethod(Order.PaymentMethod.CASH);
@@ -124,120 +419,71 @@ public class OrderService {
 
         order.setNotes(dto.getNotes());
 
-        // Generate and store JSON
-        String orderJson = generateOrderJson(order, dto);
-        order.setOrderJson(orderJson);
+        // The sync JSON is generated later, off the checkout path (see OrderJsonService)
 
         // Initially not synced
         order.setSyncStatus(Boolean.FALSE);
 
-        Order savedOrder = orderRepository.save(order);
-
-        // Update session totals
-        session.setTotalSales(session.getTotalSales().add(order.getTotalAmount()));
-        sessionRepository.save(session);
-
-        return savedOrder;
+        return order;
     }
 
-    private String generateOrderJson(Order order, CreateOrderDTO dto) throws Exception {
-        ObjectNode root = objectMapper.createObjectNode();
-
-        if (order.getOrderType() == Order.OrderType.SALE) {
-            root.put("draft", false);
-            ArrayNode ordersArray = objectMapper.createArrayNode();
-
-            ObjectNode orderNode = objectMapper.createObjectNode();
-            orderNode.put("id", order.getOrderNumber());
-
-            ObjectNode dataNode = objectMapper.createObjectNode();
-            dataNode.put("name", "Order " + order.getOrderNumber());
-            dataNode.put("amount_paid", order.getTotalAmount().doubleValue());
-            dataNode.put("amount_total", order.getTotalAmount().doubleValue());
-            dataNode.put("amount_tax", order.getTaxAmount().doubleValue());
-            dataNode.put("amount_return", 0);
-
-            // Customer info
-            ObjectNode customerNode = objectMapper.createObjectNode();
-            customerNode.put("phone", order.getCustomerPhone() != null ? order.getCustomerPhone() : "");
-            customerNode.put("name", order.getCustomerName() != null ? order.getCustomerName() : "");
-            if (order.getCustomerVat() != null && !order.getCustomerVat().isEmpty()) {
-                customerNode.put("vat", order.getCustomerVat());
-            }
-            dataNode.set("customer", customerNode);
-
-            // Order lines
-            ArrayNode linesArray = objectMapper.createArrayNode();
+    /**
+     * Sales take stock out, returns put it back (item quantities are already signed).
+     */
+    private static Map<String, Long> stockMovements(List<Order> orders) {
+        Map<String, Long> movements = new HashMap<>();
+        for (Order order : orders) {
             for (OrderItem item : order.getItems()) {
-                ObjectNode lineNode = objectMapper.createObjectNode();
-                lineNode.put("qty", item.getQuantity());
-
-                // For reward items, show price as negative or 0 based on display preference
-                if (item.isReward()) {
-                    lineNode.put("price_unit", 0); // Show as 0 in invoice as per requirement
-                } else {
-                    lineNode.put("price_unit", item.getUnitPrice().doubleValue());
-                }
-
-                lineNode.put("product_id", item.getProduct().getId());
-                lineNode.put("discount", item.getDiscount().doubleValue());
-
-                if (item.getPromotionName() != null) {
-                    lineNode.put("promotion", item.getPromotionName());
-                }
-                if (item.isReward()) {
-                    lineNode.put("is_reward", true);
-                }
-
-                linesArray.add(lineNode);
+                movements.merge(item.getProductBarcode(), (long) -item.getQuantity(), Long::sum);
             }
-            dataNode.set("order_lines", linesArray);
-
-            orderNode.set("data", dataNode);
-            ordersArray.add(orderNode);
-            root.set("orders", ordersArray);
-
-        } else { // RETURN order
-            ArrayNode returnsArray = objectMapper.createArrayNode();
-
-            ObjectNode returnNode = objectMapper.createObjectNode();
-            returnNode.put("sale_order_name", order.getOriginalOrderNumber());
-
-            ArrayNode returnLinesArray = objectMapper.createArrayNode();
-            for (OrderItem item : order.getItems()) {
-                ObjectNode lineNode = objectMapper.createObjectNode();
-                lineNode.put("qty", Math.abs(item.getQuantity())); // Always positive in return JSON
-                lineNode.put("price_unit", item.getUnitPrice().doubleValue());
-                lineNode.put("product_id", item.getProduct().getId());
-                lineNode.put("discount", item.getDiscount().doubleValue());
+        }
+        return movements;
+    }
 
-                returnLinesArray.add(lineNode);
-            }
-            returnNode.set("return_lines", returnLinesArray);
-            returnNode.put("reason", order.getReturnReason() != null ? order.getReturnReason() : "Customer return");
+    /**
+     * Look up all cart barcodes in one pass. Fails with every unknown barcode listed,
+     * e.g. "Product not found: 123, 456".
+     */
+    private Map<String, ProductSnapshot> resolveProducts(List<CartItemDTO> items) {
+        Map<String, ProductSnapshot> products =
+                catalogIndex.lookupAll(items.stream().map(CartItemDTO::getBarcode).toList());
+        requireProducts(items, products);
+        return products;
+    }
 
-            returnsArray.add(returnNode);
-            root.set("returns", returnsArray);
+    private static void requireProducts(List<CartItemDTO> items, Map<String, ProductSnapshot> products) {
+        String missing = items.stream()
+                .map(CartItemDTO::getBarcode)
+                .filter(barcode -> !products.containsKey(barcode))
+                .distinct()
+                .map(String::valueOf)
+                .collect(Collectors.joining(", "));
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Product not found: " + missing);
         }
-
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
     }
 
-    private String generateOrderNumber(PosSession session) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return String.format("ORD-%s-%s", session.getId(), timestamp);
+    public List<OrderSummaryDTO> getSessionOrders(Long sessionId) {
+        return orderRepository.findSummariesBySessionId(sessionId);
     }
 
-    public List<Order> getSessionOrders(Long sessionId) {
-        return orderRepository.findBySessionIdOrderByCreatedAtDesc(sessionId);
+    public Optional<Order> getOrderById(Long orderId) {
+        return orderRepository.findDetailedById(orderId);
     }
 
     public Optional<Order> getOrderByNumber(String orderNumber) {
-        return orderRepository.findByOrderNumber(orderNumber);
+        return orderRepository.findDetailedByOrderNumber(orderNumber);
     }
 
-    @Transactional
-    public List<Order> searchOrders(OrderSearchDTO searchDTO) {
+    public Optional<String> getOrderJson(Long orderId) {
+        return orderJsonService.getJson(orderId);
+    }
+
+    /**
+     * One keyset page of orders matching the supplied criteria, newest first.
+     */
+    @Transactional(readOnly = true)
+    public OrderSearchPageDTO searchOrders(OrderSearchDTO searchDTO) {
         BigDecimal minAmount = searchDTO.getTotalAmountMin() != null
                 ? BigDecimal.valueOf(searchDTO.getTotalAmountMin()) : null;
         BigDecimal maxAmount = searchDTO.getTotalAmountMax() != null
@@ -252,15 +498,32 @@ public class OrderService {
             }
         }
 
-        return orderRepository.searchOrders(
+        int pageSize = searchDTO.getLimit() != null
+                ? Math.max(1, Math.min(searchDTO.getLimit(), MAX_SEARCH_PAGE)) : DEFAULT_SEARCH_PAGE;
+        KeysetCursor before = KeysetCursor.parse(searchDTO.getCursor());
+
+        OrderSearchRepository.Criteria criteria = new OrderSearchRepository.Criteria(
                 searchDTO.getOrderNumber(),
                 searchDTO.getCustomerPhone(),
                 searchDTO.getCustomerName(),
                 searchDTO.getCustomerVat(),
                 minAmount,
                 maxAmount,
-                orderType
-        );
+                orderType,
+                searchDTO.getSessionId(),
+                searchDTO.getCreatedFrom(),
+                searchDTO.getCreatedTo());
+        List<OrderSummaryDTO> page = orderSearchRepository.search(criteria,
+                before != null ? before.at() : null, before != null ? before.id() : null, pageSize + 1);
+
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) page = page.subList(0, pageSize);
+        String next = null;
+        if (hasMore) {
+            OrderSummaryDTO last = page.get(page.size() - 1);
+            next = KeysetCursor.of(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new OrderSearchPageDTO(page, next, hasMore);
     }
 
     @Transactional
@@ -271,7 +534,7 @@ public class OrderService {
         return orderRepository.save(order);
     }
 
-    public List<Order> getUnsyncedOrders() {
-        return orderRepository.findBySyncStatusFalseOrderByCreatedAtDesc();
+    public List<OrderSummaryDTO> getUnsyncedOrders() {
+        return orderRepository.findUnsyncedSummaries();
     }
 }
\ No newline at end of file
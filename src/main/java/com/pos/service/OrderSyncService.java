@@ -0,0 +1,124 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.repository.OrderSyncRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Order sync to Odoo through the outbox of unsynced orders. An agent claims a batch
+ * (a time-limited lease, so a crashed agent's batch comes back by itself), forwards the
+ * merged payload and acks the orderIds it received, or nacks the batch, in one statement.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderSyncService {
+
+    public record Lease(String leaseId, LocalDateTime leasedUntil, int count) {
+    }
+
+    private final OrderSyncRepository syncRepository;
+    private final OrderJsonService orderJsonService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${pos.sync.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${pos.sync.max-claim:5000}")
+    private int maxClaim;
+
+    public Lease claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leasedUntil = now.plusSeconds(leaseSeconds);
+        String leaseId = UUID.randomUUID().toString();
+        int count = syncRepository.claim(leaseId, now, leasedUntil, Math.max(1, Math.min(limit, maxClaim)));
+        return new Lease(leaseId, leasedUntil, count);
+    }
+
+    /**
+     * Write the lease as one document: the stored order JSON of every leased order merged
+     * into a single {@code orders}/{@code returns} payload, followed by the order ids to
+     * ack. Rows are streamed from the database, never held as a list. Leased orders that
+     * could not be written are released again rather than left for the ack.
+     */
+    public void writePayload(Lease lease, OutputStream out) throws IOException {
+        List<Long> ids = new ArrayList<>(lease.count());
+        List<Long> skipped = new ArrayList<>();
+        if (lease.count() > 0) {
+            // Orders the background fill has not reached yet
+            orderJsonService.materialize(syncRepository.findLeasedWithoutJson(lease.leaseId()));
+        }
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("leaseId", lease.leaseId());
+            json.writeStringField("leasedUntil", lease.leasedUntil().toString());
+            json.writeNumberField("count", lease.count());
+            json.writeBooleanField("draft", false);
+            if (lease.count() > 0) {
+                writeSection(json, lease.leaseId(), "SALE", "orders", ids, skipped);
+                writeSection(json, lease.leaseId(), "RETURN", "returns", ids, skipped);
+            } else {
+                json.writeArrayFieldStart("orders");
+                json.writeEndArray();
+                json.writeArrayFieldStart("returns");
+                json.writeEndArray();
+            }
+            json.writeArrayFieldStart("orderIds");
+            for (Long id : ids) json.writeNumber(id);
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        if (!skipped.isEmpty()) {
+            syncRepository.nack(lease.leaseId(), skipped);
+        }
+    }
+
+    public int ack(String leaseId, Collection<Long> orderIds) {
+        return syncRepository.ack(leaseId, orderIds);
+    }
+
+    public int nack(String leaseId, Collection<Long> orderIds) {
+        return syncRepository.nack(leaseId, orderIds);
+    }
+
+    // Copies the elements of each stored document's section array (orders or returns)
+    private void writeSection(JsonGenerator json, String leaseId, String orderType, String section,
+                              List<Long> ids, List<Long> skipped) throws IOException {
+        json.writeArrayFieldStart(section);
+        try {
+            syncRepository.forEachLeased(leaseId, orderType, rs -> {
+                try (InputStream stored = OrderJsonService.open(rs.getBytes(3), rs.getString(4))) {
+                    if (stored == null) {
+                        log.warn("Order {} has no order JSON; left out of sync lease {}", rs.getString(2), leaseId);
+                        skipped.add(rs.getLong(1));
+                        return;
+                    }
+                    for (JsonNode entry : objectMapper.readTree(stored).path(section)) {
+                        json.writeTree(entry);
+                    }
+                    ids.add(rs.getLong(1));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.writeEndArray();
+    }
+}
@@ -0,0 +1,151 @@
+package com.pos.service;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prices a cart: line subtotal, discount, tax and total, and the order totals, for checkout
+ * and for any cart preview. Line tax is {@code (subtotal - discount) * taxRate} rounded
+ * HALF_UP to 2 decimals; a return has its order totals negated.
+ *
+ * Amounts are worked in long minor units (halalas), tax rates in 1/10000, so a cart costs
+ * a handful of long operations per line instead of a chain of BigDecimal temporaries.
+ * Prices and discounts with more than 2 decimals, rates with more than 4, and overflow
+ * fall back to the same arithmetic in BigDecimal. Either way the results equal, scale
+ * included, what BigDecimal arithmetic on the inputs gives.
+ */
+@Component
+public class PricingEngine {
+
+    private static final long[] POW10 = {1, 10, 100};
+
+    public record LineInput(BigDecimal unitPrice, int quantity, BigDecimal discount, BigDecimal taxRate) {
+    }
+
+    public record PricedLine(BigDecimal subtotal, BigDecimal discount, BigDecimal taxAmount, BigDecimal totalPrice) {
+    }
+
+    public record Quote(List<PricedLine> lines, BigDecimal subtotal, BigDecimal discountAmount,
+                        BigDecimal taxAmount, BigDecimal totalAmount) {
+    }
+
+    /**
+     * Price the lines in order. Quantities count as their absolute value; a null discount is zero.
+     */
+    public Quote price(List<LineInput> lines, boolean isReturn) {
+        Quote quote = priceMinor(lines, isReturn);
+        return quote != null ? quote : priceDecimal(lines, isReturn);
+    }
+
+    // Null when an input does not fit minor units or a sum overflows
+    private static Quote priceMinor(List<LineInput> lines, boolean isReturn) {
+        int n = lines.size();
+        long[] minor = new long[n * 3];
+        long subtotal = 0, discountTotal = 0, taxTotal = 0, total;
+        int subtotalScale = 0, discountScale = 0;
+
+        try {
+            for (int i = 0; i < n; i++) {
+                LineInput line = lines.get(i);
+                BigDecimal discount = line.discount() != null ? line.discount() : BigDecimal.ZERO;
+                if (!fits(line.unitPrice(), 2) || !fits(discount, 2) || !fits(line.taxRate(), 4)) return null;
+
+                long lineSubtotal = Math.multiplyExact(toMinor(line.unitPrice(), 2), Math.abs((long) line.quantity()));
+                long lineDiscount = toMinor(discount, 2);
+                long net = Math.subtractExact(lineSubtotal, lineDiscount);
+                long lineTax = roundHalfUp(Math.multiplyExact(net, toMinor(line.taxRate(), 4)), 10_000);
+
+                minor[i * 3] = lineSubtotal;
+                minor[i * 3 + 1] = lineTax;
+                minor[i * 3 + 2] = Math.addExact(net, lineTax);
+                subtotal = Math.addExact(subtotal, lineSubtotal);
+                discountTotal = Math.addExact(discountTotal, lineDiscount);
+                taxTotal = Math.addExact(taxTotal, lineTax);
+                subtotalScale = Math.max(subtotalScale, line.unitPrice().scale());
+                discountScale = Math.max(discountScale, discount.scale());
+            }
+            total = Math.addExact(Math.subtractExact(subtotal, discountTotal), taxTotal);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+
+        List<PricedLine> priced = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            LineInput line = lines.get(i);
+            priced.add(new PricedLine(
+                    fromMinor(minor[i * 3], line.unitPrice().scale()),
+                    line.discount() != null ? line.discount() : BigDecimal.ZERO,
+                    fromMinor(minor[i * 3 + 1], 2),
+                    fromMinor(minor[i * 3 + 2], 2)));
+        }
+
+        if (isReturn) {
+            subtotal = -subtotal;
+            discountTotal = -discountTotal;
+            taxTotal = -taxTotal;
+            total = -total;
+        }
+        // Scales as BigDecimal sums starting from ZERO would have them
+        int taxScale = n > 0 ? 2 : 0;
+        return new Quote(priced,
+                fromMinor(subtotal, subtotalScale),
+                fromMinor(discountTotal, discountScale),
+                fromMinor(taxTotal, taxScale),
+                fromMinor(total, Math.max(taxScale, Math.max(subtotalScale, discountScale))));
+    }
+
+    /**
+     * The same rules in BigDecimal, for inputs the minor-unit path does not take.
+     */
+    private static Quote priceDecimal(List<LineInput> lines, boolean isReturn) {
+        List<PricedLine> priced = new ArrayList<>(lines.size());
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal discountTotal = BigDecimal.ZERO;
+        BigDecimal taxTotal = BigDecimal.ZERO;
+
+        for (LineInput line : lines) {
+            BigDecimal lineSubtotal = line.unitPrice().multiply(BigDecimal.valueOf(Math.abs((long) line.quantity())));
+            BigDecimal lineDiscount = line.discount() != null ? line.discount() : BigDecimal.ZERO;
+            BigDecimal lineTax = lineSubtotal.subtract(lineDiscount)
+                    .multiply(line.taxRate())
+                    .setScale(2, RoundingMode.HALF_UP);
+            priced.add(new PricedLine(lineSubtotal, lineDiscount, lineTax,
+                    lineSubtotal.subtract(lineDiscount).add(lineTax)));
+
+            subtotal = subtotal.add(lineSubtotal);
+            discountTotal = discountTotal.add(lineDiscount);
+            taxTotal = taxTotal.add(lineTax);
+        }
+
+        if (isReturn) {
+            subtotal = subtotal.negate();
+            discountTotal = discountTotal.negate();
+            taxTotal = taxTotal.negate();
+        }
+        return new Quote(priced, subtotal, discountTotal, taxTotal, subtotal.subtract(discountTotal).add(taxTotal));
+    }
+
+    private static boolean fits(BigDecimal value, int maxScale) {
+        return value.scale() >= 0 && value.scale() <= maxScale && value.precision() <= 17;
+    }
+
+    private static long toMinor(BigDecimal value, int scale) {
+        return value.movePointRight(scale).longValueExact();
+    }
+
+    // value / divisor rounded HALF_UP (halves away from zero, as BigDecimal does)
+    private static long roundHalfUp(long value, long divisor) {
+        long q = Math.abs(value) / divisor;
+        if (Math.abs(value) % divisor * 2 >= divisor) q++;
+        return value < 0 ? -q : q;
+    }
+
+    // Minor units (2 decimals) as a BigDecimal of the given scale; exact for scale <= 2
+    private static BigDecimal fromMinor(long minor, int scale) {
+        return BigDecimal.valueOf(minor / POW10[2 - scale], scale);
+    }
+}
@@ -0,0 +1,164 @@
+package com.pos.service;
+
+import com.pos.dto.ProductSnapshot;
+import com.pos.model.Product;
+import com.pos.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through barcode index in front of {@link ProductRepository#findByBarcode}.
+ * Known barcodes are answered from memory; misses are loaded from the database
+ * (in one query for bulk lookups) and remembered. Writers must call
+ * {@link #evict(String)} / {@link #evictById(Long)} after changing a product.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCatalogIndex {
+
+    private final ProductRepository productRepository;
+
+    private final Map<String, ProductSnapshot> byBarcode = new ConcurrentHashMap<>();
+    private final Map<Long, String> barcodeById = new ConcurrentHashMap<>();
+
+    // Bumped on every eviction so a slow loader never re-inserts a row read before the change
+    private final AtomicLong generation = new AtomicLong();
+
+    public Optional<ProductSnapshot> lookup(String barcode) {
+        if (barcode == null) return Optional.empty();
+        ProductSnapshot cached = byBarcode.get(barcode);
+        if (cached != null) return Optional.of(cached);
+
+        long gen = generation.get();
+        return productRepository.findByBarcode(barcode)
+                .map(product -> remember(product, gen));
+    }
+
+    /**
+     * Resolve many barcodes at once. Missing entries are fetched with a single
+     * IN query; barcodes that do not exist are simply absent from the result.
+     * The result keeps the order of the requested barcodes.
+     */
+    public Map<String, ProductSnapshot> lookupAll(Collection<String> barcodes) {
+        Map<String, ProductSnapshot> result = new LinkedHashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        for (String barcode : barcodes) {
+            if (barcode == null || result.containsKey(barcode)) continue;
+            ProductSnapshot cached = byBarcode.get(barcode);
+            if (cached != null) {
+                result.put(barcode, cached);
+            } else {
+                result.put(barcode, null);
+                misses.add(barcode);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            long gen = generation.get();
+            for (Product product : productRepository.findByBarcodeIn(misses)) {
+                result.put(product.getBarcode(), remember(product, gen));
+            }
+        }
+
+        result.values().removeIf(Objects::isNull);
+        return result;
+    }
+
+    /**
+     * Load every active product, so checkout can price them without the database.
+     * Returns how many were loaded.
+     */
+    public int preload() {
+        long gen = generation.get();
+        List<Product> products = productRepository.findByActiveTrue();
+        products.forEach(product -> remember(product, gen));
+        return products.size();
+    }
+
+    public void evict(String barcode) {
+        if (barcode == null) return;
+        generation.incrementAndGet();
+        ProductSnapshot removed = byBarcode.remove(barcode);
+        if (removed != null && removed.getId() != null) {
+            barcodeById.remove(removed.getId(), barcode);
+        }
+    }
+
+    public void evictAll(Collection<String> barcodes) {
+        for (String barcode : barcodes) {
+            evict(barcode);
+        }
+    }
+
+    /**
+     * Apply committed stock movements to the cached entries instead of evicting them.
+     * {@code updatedAt} is the value the flush wrote: an entry loaded after the flush
+     * already carries it and is left alone, an older one gets the delta added.
+     */
+    public void applyStockDeltas(Map<String, Long> deltas, LocalDateTime updatedAt) {
+        // Loaders that read the row before the flush must not cache it now
+        generation.incrementAndGet();
+        deltas.forEach((barcode, delta) -> byBarcode.computeIfPresent(barcode, (key, cached) ->
+                cached.getUpdatedAt() != null && !cached.getUpdatedAt().isBefore(updatedAt)
+                        ? cached
+                        : cached.withStock(cached.getStock() + delta.intValue(), updatedAt)));
+    }
+
+    /**
+     * Evict now and again once the surrounding transaction commits, so a reader
+     * that loads the old row before the commit cannot leave it cached.
+     */
+    public void evictAfterCommit(Collection<String> barcodes) {
+        List<String> keys = new ArrayList<>(barcodes);
+        evictAll(keys);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAll(keys);
+                }
+            });
+        }
+    }
+
+    /**
+     * Evict whatever barcode the product with this id was last cached under.
+     * Needed when an update changes the barcode itself.
+     */
+    public void evictById(Long id) {
+        if (id == null) return;
+        String barcode = barcodeById.get(id);
+        if (barcode != null) evict(barcode);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        byBarcode.clear();
+        barcodeById.clear();
+    }
+
+    public int size() {
+        return byBarcode.size();
+    }
+
+    private ProductSnapshot remember(Product product, long gen) {
+        ProductSnapshot snapshot = ProductSnapshot.of(product);
+        if (generation.get() != gen) return snapshot;
+
+        if (byBarcode.putIfAbsent(snapshot.getBarcode(), snapshot) == null) {
+            barcodeById.put(snapshot.getId(), snapshot.getBarcode());
+            // An eviction raced with the put: drop what we just inserted
+            if (generation.get() != gen) {
+                byBarcode.remove(snapshot.getBarcode(), snapshot);
+            }
+        }
+        return snapshot;
+    }
+}
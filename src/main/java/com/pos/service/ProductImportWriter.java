@@ -0,0 +1,95 @@
+package com.pos.service;
+
+import com.pos.dto.ImportResultDTO;
+import com.pos.model.Product;
+import com.pos.repository.ProductBulkRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Write path shared by the product importers. Each chunk costs one hash lookup
+ * plus one upsert statement; rows whose content hash matches the stored one are
+ * not written at all, so their updated_at stays put.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductImportWriter {
+
+    private final ProductBulkRepository bulkRepository;
+    private final ProductCatalogIndex catalogIndex;
+    private final ProductSearchIndex searchIndex;
+
+    public ImportResultDTO write(List<Product> chunk) {
+        ImportResultDTO result = new ImportResultDTO();
+
+        // Last row wins when a sheet repeats a barcode
+        Map<String, Product> byBarcode = new LinkedHashMap<>();
+        for (Product product : chunk) {
+            normalize(product);
+            product.setContentHash(contentHash(product));
+            byBarcode.put(product.getBarcode(), product);
+        }
+
+        Map<String, String> existing = bulkRepository.findContentHashes(byBarcode.keySet());
+        List<Product> inserts = new ArrayList<>();
+        List<Product> updates = new ArrayList<>();
+        for (Product product : byBarcode.values()) {
+            if (!existing.containsKey(product.getBarcode())) {
+                inserts.add(product);
+            } else if (product.getContentHash().equals(existing.get(product.getBarcode()))) {
+                result.setUnchanged(result.getUnchanged() + 1);
+            } else {
+                updates.add(product);
+            }
+        }
+        // Duplicates inside the chunk collapse onto one row
+        result.setUnchanged(result.getUnchanged() + chunk.size() - byBarcode.size());
+
+        bulkRepository.upsert(inserts, updates);
+        result.setInserted(inserts.size());
+        result.setUpdated(updates.size());
+
+        catalogIndex.evictAfterCommit(updates.stream().map(Product::getBarcode).toList());
+        catalogIndex.evictAfterCommit(inserts.stream().map(Product::getBarcode).toList());
+        searchIndex.indexAfterCommit(inserts);
+        searchIndex.indexAfterCommit(updates);
+        return result;
+    }
+
+    /**
+     * Round to the column scales so the hash describes what is actually stored.
+     */
+    private void normalize(Product product) {
+        BigDecimal price = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+        product.setPrice(price.setScale(2, RoundingMode.HALF_UP));
+        BigDecimal taxRate = product.getTaxRate() != null ? product.getTaxRate() : BigDecimal.ZERO;
+        product.setTaxRate(taxRate.setScale(4, RoundingMode.HALF_UP));
+        if (product.getStock() == null) product.setStock(0);
+        if (product.getActive() == null) product.setActive(true);
+        if (product.getName() == null) product.setName("");
+    }
+
+    static String contentHash(Product product) {
+        String content = String.join("\u0001",
+                product.getBarcode(),
+                product.getName(),
+                String.valueOf(product.getDescription()),
+                product.getPrice().toPlainString(),
+                String.valueOf(product.getStock()),
+                String.valueOf(product.getCategory()),
+                product.getTaxRate().toPlainString(),
+                String.valueOf(product.getActive()));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
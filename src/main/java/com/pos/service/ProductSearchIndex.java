@@ -0,0 +1,253 @@
+package com.pos.service;
+
+import com.pos.model.Product;
+import com.pos.repository.CatalogSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory search over active products' name, barcode and category.
+ * Queries of three or more characters go through a trigram index (substring match),
+ * shorter ones through a sorted word index (prefix match). Text is folded before
+ * indexing: lower case, Latin accents stripped, Arabic diacritics/tatweel removed
+ * and the common letter variants (alef forms, ya/alef maqsura, ta marbuta) unified.
+ *
+ * Built once at startup and kept current by {@link #index} / {@link #remove};
+ * writes are serialised, reads are lock-free.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s\\p{Punct}\\u060C\\u061B\\u061F]+");
+
+    private record Doc(Long id, String barcode, String name, String text, Set<String> words, Set<String> grams) {
+    }
+
+    private final CatalogSnapshotRepository snapshotRepository;
+
+    private final Map<String, Doc> docs = new ConcurrentHashMap<>();
+    private final Map<Long, String> barcodeById = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<String>> words = new ConcurrentSkipListMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        snapshotRepository.forEachActiveProduct(rs ->
+                put(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(7)));
+    }
+
+    public synchronized void index(Product product) {
+        if (product.getBarcode() == null) return;
+        // Barcode may have changed since the product was last indexed
+        String previous = product.getId() != null ? barcodeById.get(product.getId()) : null;
+        if (previous != null && !previous.equals(product.getBarcode())) {
+            removeDoc(previous);
+        }
+        if (Boolean.FALSE.equals(product.getActive())) {
+            removeDoc(product.getBarcode());
+        } else {
+            put(product.getId(), product.getBarcode(), product.getName(), product.getCategory());
+        }
+    }
+
+    /**
+     * Index once the surrounding transaction commits, so rolled-back rows never show up.
+     */
+    public void indexAfterCommit(Collection<Product> products) {
+        List<Product> pending = new ArrayList<>(products);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.forEach(this::index);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.forEach(ProductSearchIndex.this::index);
+            }
+        });
+    }
+
+    public synchronized void remove(String barcode) {
+        removeDoc(barcode);
+    }
+
+    /**
+     * Barcodes of the best {@code limit} matches; every query term must match.
+     * Exact and prefix barcode hits rank first, then word-prefix hits, then substrings.
+     */
+    public List<String> search(String query, int limit) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty() || limit <= 0) return List.of();
+
+        Set<String> candidates = null;
+        for (String term : terms) {
+            Set<String> matches = candidates(term);
+            if (candidates == null) {
+                candidates = new HashSet<>(matches);
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) return List.of();
+        }
+
+        PriorityQueue<Map.Entry<Doc, Integer>> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        for (String barcode : candidates) {
+            Doc doc = docs.get(barcode);
+            if (doc == null) continue;
+            int score = 0;
+            for (String term : terms) {
+                int s = score(doc, term);
+                if (s == 0) {
+                    score = 0;
+                    break;
+                }
+                score += s;
+            }
+            if (score == 0) continue;
+            top.add(Map.entry(doc, score));
+            if (top.size() > limit) top.poll();
+        }
+
+        List<Map.Entry<Doc, Integer>> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        return ranked.stream().map(e -> e.getKey().barcode()).toList();
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    private static final Comparator<Map.Entry<Doc, Integer>> RANKING =
+            Comparator.<Map.Entry<Doc, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                    .thenComparingInt(e -> e.getKey().name().length())
+                    .thenComparing(e -> e.getKey().barcode());
+
+    private Set<String> candidates(String term) {
+        if (term.length() < 3) {
+            Set<String> result = new HashSet<>();
+            for (Set<String> barcodes : words.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+                result.addAll(barcodes);
+            }
+            return result;
+        }
+
+        // Intersect the posting lists, rarest trigram first
+        List<Set<String>> postings = new ArrayList<>();
+        for (String gram : grams(term)) {
+            Set<String> posting = trigrams.get(gram);
+            if (posting == null) return Set.of();
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<String> result = new HashSet<>(postings.get(0));
+        for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+            result.retainAll(postings.get(i));
+        }
+        return result;
+    }
+
+    private static int score(Doc doc, String term) {
+        String barcode = doc.barcode().toLowerCase(Locale.ROOT);
+        if (barcode.equals(term)) return 100;
+        if (barcode.startsWith(term)) return 50;
+        for (String word : doc.words()) {
+            if (word.startsWith(term)) return 20;
+        }
+        return doc.text().contains(term) ? 5 : 0;
+    }
+
+    private synchronized void put(Long id, String barcode, String name, String category) {
+        removeDoc(barcode);
+
+        String text = normalize(barcode + " " + (name != null ? name : "") + " " + (category != null ? category : ""));
+        Set<String> docWords = new HashSet<>(terms(text));
+        Set<String> docGrams = new HashSet<>();
+        for (String word : docWords) {
+            docGrams.addAll(grams(word));
+        }
+        Doc doc = new Doc(id, barcode, name != null ? name : "", text, docWords, docGrams);
+
+        docs.put(barcode, doc);
+        if (id != null) barcodeById.put(id, barcode);
+        for (String word : docWords) {
+            words.computeIfAbsent(word, k -> ConcurrentHashMap.newKeySet()).add(barcode);
+        }
+        for (String gram : docGrams) {
+            trigrams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(barcode);
+        }
+    }
+
+    private void removeDoc(String barcode) {
+        Doc doc = docs.remove(barcode);
+        if (doc == null) return;
+        if (doc.id() != null) barcodeById.remove(doc.id(), barcode);
+        for (String word : doc.words()) {
+            Set<String> posting = words.get(word);
+            if (posting != null) {
+                posting.remove(barcode);
+                if (posting.isEmpty()) words.remove(word, posting);
+            }
+        }
+        for (String gram : doc.grams()) {
+            Set<String> posting = trigrams.get(gram);
+            if (posting != null) {
+                posting.remove(barcode);
+                if (posting.isEmpty()) trigrams.remove(gram, posting);
+            }
+        }
+    }
+
+    private static List<String> terms(String text) {
+        if (text == null) return List.of();
+        List<String> result = new ArrayList<>();
+        for (String part : SEPARATORS.split(normalize(text))) {
+            if (!part.isEmpty()) result.add(part);
+        }
+        return result;
+    }
+
+    private static List<String> grams(String word) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            result.add(word.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    /**
+     * Lower case, strip accents and Arabic harakat (NFKD also splits hamza-carrying
+     * alef/waw/ya into base letter + mark), drop tatweel, unify alef maqsura and
+     * ta marbuta, and map Arabic-Indic digits to ASCII.
+     */
+    static String normalize(String text) {
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("");
+        StringBuilder sb = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            switch (c) {
+                case '\u0640' -> { }                  // tatweel
+                case '\u0649' -> sb.append('\u064A'); // alef maqsura -> ya
+                case '\u0629' -> sb.append('\u0647'); // ta marbuta -> ha
+                case '\u0671' -> sb.append('\u0627'); // alef wasla -> alef
+                default -> {
+                    if (c >= '\u0660' && c <= '\u0669') sb.append((char) ('0' + (c - '\u0660')));
+                    else if (c >= '\u06F0' && c <= '\u06F9') sb.append((char) ('0' + (c - '\u06F0')));
+                    else sb.append(Character.toLowerCase(c));
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,18 +1,22 @@
 package com.pos.service;
 
+import com.pos.dto.CatalogChangesDTO;
+import com.pos.dto.ImportResultDTO;
+import com.pos.dto.ProductSnapshot;
 import com.pos.model.Product;
 import com.pos.repository.ProductRepository;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
+import java.io.File;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -21,94 +25,172 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductCatalogIndex catalogIndex;
+
+    @Autowired
+    private ProductImportWriter importWriter;
+
+    @Autowired
+    private ImportPipeline importPipeline;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    private static final int MAX_CHANGES_PAGE = 2000;
+
+    // Rows newer than now - lag are held back so a slow writer that commits an older
+    // updated_at after a terminal has already synced past it is not skipped
+    @Value("${pos.catalog.sync-lag-ms:5000}")
+    private long syncLagMs;
+
     public List<Product> getAllProducts() {
         return productRepository.findByActiveTrue();
     }
 
-    public Optional<Product> getProductByBarcode(String barcode) {
-        return productRepository.findByBarcode(barcode);
+    public Optional<ProductSnapshot> getProductByBarcode(String barcode) {
+        return catalogIndex.lookup(barcode);
+    }
+
+    /**
+     * Resolve many barcodes at once; unknown barcodes are left out of the map.
+     */
+    public Map<String, ProductSnapshot> getProductsByBarcodes(List<String> barcodes) {
+        return catalogIndex.lookupAll(barcodes);
+    }
+
+    /**
+     * Products changed since {@code cursor}, oldest first, keyed by (updatedAt, id).
+     * Active rows come back as upserts, inactive ones as deactivated barcodes.
+     * A null cursor starts from the beginning of the catalog.
+     */
+    public CatalogChangesDTO getChanges(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_CHANGES_PAGE));
+        KeysetCursor after = KeysetCursor.parse(cursor);
+        if (after == null) after = KeysetCursor.START;
+
+        LocalDateTime upTo = LocalDateTime.now().minus(syncLagMs, ChronoUnit.MILLIS);
+        List<Product> page = productRepository.findChangedSince(
+                after.at(), after.id(), upTo, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) page = page.subList(0, pageSize);
+
+        List<ProductSnapshot> upserts = new ArrayList<>();
+        List<String> deactivated = new ArrayList<>();
+        for (Product product : page) {
+            if (Boolean.TRUE.equals(product.getActive())) {
+                upserts.add(ProductSnapshot.of(product));
+            } else {
+                deactivated.add(product.getBarcode());
+            }
+        }
+
+        String next = cursor;
+        if (!page.isEmpty()) {
+            Product last = page.get(page.size() - 1);
+            next = KeysetCursor.of(last.getUpdatedAt(), last.getId()).encode();
+        } else if (next == null || next.isBlank()) {
+            next = KeysetCursor.START.encode();
+        }
+        return new CatalogChangesDTO(upserts, deactivated, next, hasMore);
+    }
+
+    /**
+     * Top matches for a cashier's free-text query over name, barcode and category.
+     */
+    public List<ProductSnapshot> searchProducts(String query, int limit) {
+        List<String> barcodes = searchIndex.search(query, limit);
+        return new ArrayList<>(catalogIndex.lookupAll(barcodes).values());
     }
 
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        // The barcode itself may have changed, so drop both the old and the new key
+        String previousBarcode = product.getId() == null ? null
+                : productRepository.findById(product.getId()).map(Product::getBarcode).orElse(null);
+        catalogIndex.evictById(product.getId());
+        catalogIndex.evict(previousBarcode);
+        Product saved = productRepository.save(product);
+        catalogIndex.evict(saved.getBarcode());
+        if (previousBarcode != null && !previousBarcode.equals(saved.getBarcode())) {
+            searchIndex.remove(previousBarcode);
+        }
+        searchIndex.index(saved);
+        return saved;
     }
 
     public void deleteProduct(Long id) {
         productRepository.findById(id).ifPresent(product -> {
             product.setActive(false);
             productRepository.save(product);
+            catalogIndex.evict(product.getBarcode());
+            searchIndex.remove(product.getBarcode());
         });
     }
 
-    public List<Product> importFromExcel(MultipartFile file) throws Exception {
-        List<Product> products = new ArrayList<>();
-        
-        try (InputStream is = file.getInputStream();
-             Workbook workbook = new XSSFWorkbook(is)) {
-            
-            Sheet sheet = workbook.getSheetAt(0);
-            Iterator<Row> rows = sheet.iterator();
-            
-            // Skip header row
-            if (rows.hasNext()) rows.next();
-            
-            while (rows.hasNext()) {
-                Row row = rows.next();
-                Product product = new Product();
-                
-                // Column order: Barcode, Name, Description, Price, Stock, Category, TaxRate
-                product.setBarcode(getCellStringValue(row.getCell(0)));
-                product.setName(getCellStringValue(row.getCell(1)));
-                product.setDescription(getCellStringValue(row.getCell(2)));
-                product.setPrice(new BigDecimal(getCellNumericValue(row.getCell(3))));
-                product.setStock((int) getCellNumericValue(row.getCell(4)));
-                product.setCategory(getCellStringValue(row.getCell(5)));
-                product.setTaxRate(new BigDecimal(getCellNumericValue(row.getCell(6))));
-                product.setActive(true);
-                
-                // Update if exists, else create new
-                Optional<Product> existing = productRepository.findByBarcode(product.getBarcode());
-                if (existing.isPresent()) {
-                    Product existingProduct = existing.get();
-                    existingProduct.setName(product.getName());
-                    existingProduct.setDescription(product.getDescription());
-                    existingProduct.setPrice(product.getPrice());
-                    existingProduct.setStock(product.getStock());
-                    existingProduct.setCategory(product.getCategory());
-                    existingProduct.setTaxRate(product.getTaxRate());
-                    products.add(productRepository.save(existingProduct));
-                } else {
-                    products.add(productRepository.save(product));
+    /**
+     * Import products from the first sheet of an XLSX file.
+     * Column order: Barcode, Name, Description, Price, Stock, Category, TaxRate.
+     * The sheet is streamed row by row (SAX) into the {@link ImportPipeline}, whose
+     * writers commit chunks through {@link ProductImportWriter} in parallel;
+     * rows without a barcode are skipped.
+     */
+    public ImportResultDTO importFromExcel(File file, ImportProgress progress) throws Exception {
+        ImportResultDTO parsed = new ImportResultDTO();
+
+        ImportResultDTO written = importPipeline.run(sink -> {
+            boolean[] header = {true};
+            XlsxStreamReader.read(file, row -> {
+                // Skip header row
+                if (header[0]) {
+                    header[0] = false;
+                    return;
                 }
-            }
-        }
-        
-        return products;
+                parsed.setRows(parsed.getRows() + 1);
+                progress.rowsProcessed(1);
+
+                Product product = parseRow(row);
+                if (product.getBarcode().isEmpty()) {
+                    parsed.setSkipped(parsed.getSkipped() + 1);
+                    return;
+                }
+                sink.accept(product);
+            });
+        }, importWriter::write, progress);
+
+        written.add(parsed);
+        return written;
     }
 
-    private String getCellStringValue(Cell cell) {
-        if (cell == null) return "";
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                return String.valueOf((long) cell.getNumericCellValue());
-            default:
-                return "";
+    private Product parseRow(XlsxStreamReader.Row row) {
+        Product product = new Product();
+
+        // Column order: Barcode, Name, Description, Price, Stock, Category, TaxRate
+        product.setBarcode(getCellStringValue(row, 0));
+        product.setName(getCellStringValue(row, 1));
+        product.setDescription(getCellStringValue(row, 2));
+        product.setPrice(new BigDecimal(getCellNumericValue(row, 3)));
+        product.setStock((int) getCellNumericValue(row, 4));
+        product.setCategory(getCellStringValue(row, 5));
+        product.setTaxRate(new BigDecimal(getCellNumericValue(row, 6)));
+        return product;
+    }
+
+    private String getCellStringValue(XlsxStreamReader.Row row, int col) {
+        String text = row.getText(col);
+        if (text == null) return "";
+        if (row.isNumeric(col)) {
+            return String.valueOf((long) Double.parseDouble(text));
         }
+        return text.trim();
     }
 
-    private double getCellNumericValue(Cell cell) {
-        if (cell == null) return 0.0;
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return cell.getNumericCellValue();
-        } else if (cell.getCellType() == CellType.STRING) {
-            try {
-                return Double.parseDouble(cell.getStringCellValue().trim());
-            } catch (NumberFormatException e) {
-                return 0.0;
-            }
+    private double getCellNumericValue(XlsxStreamReader.Row row, int col) {
+        String text = row.getText(col);
+        if (text == null) return 0.0;
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            return 0.0;
         }
-        return 0.0;
     }
 }
@@ -2,56 +2,117 @@ package com.pos.service;
 
 import com.pos.dto.CloseSessionDTO;
 import com.pos.dto.OpenSessionDTO;
-import com.pos.model.Order;
+import com.pos.dto.SessionReportDTO;
 import com.pos.model.PosSession;
 import com.pos.repository.OrderRepository;
 import com.pos.repository.PosSessionRepository;
+import com.pos.repository.SessionBulkRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+@Slf4j
 @Service
 public class SessionService {
 
+    // Concurrent opens on other nodes that can take the MAX + 1 number before we give up
+    private static final int SESSION_NUMBER_ATTEMPTS = 5;
+
     @Autowired
     private PosSessionRepository sessionRepository;
 
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private SessionTotals sessionTotals;
+
+    @Autowired
+    private SessionBulkRepository sessionBulkRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ActiveSessionRegistry registry;
+
+    @Autowired
+    private OrderJournal orderJournal;
+
+    @Value("${pos.journal.drain-timeout-ms:30000}")
+    private long journalDrainTimeoutMs;
+
+    /**
+     * Result of opening: the session and whether it was already open.
+     */
+    public record OpenedSession(PosSession session, boolean existing) {
+    }
+
     /**
      * Open a new session or return existing active session for cashier
      * @param dto OpenSessionDTO with cashier name and opening cash
      * @return PosSession (existing active session or newly created session)
      */
     public PosSession openSession(OpenSessionDTO dto) {
-        // Check if cashier already has an active session
-        Optional<PosSession> existingSession = sessionRepository.findActiveByCashierName(dto.getCashierName());
-        
-        if (existingSession.isPresent()) {
-            // Return existing active session instead of creating new one
-            return existingSession.get();
+        return openOrResume(dto).session();
+    }
+
+    /**
+     * Open a new session, or return the cashier's active one. Serialised per cashier on
+     * this node; across nodes the unique keys decide. The session number is the cashier's
+     * highest stored number plus one, retried if another node took it first.
+     */
+    public OpenedSession openOrResume(OpenSessionDTO dto) {
+        String cashierName = dto.getCashierName();
+        if (cashierName == null || cashierName.isBlank()) {
+            throw new RuntimeException("Cashier name is required");
         }
-        
-        // No active session found, create a new one
-        // Get next session number for this cashier
-        Integer maxSessionNumber = sessionRepository.findMaxSessionNumberByCashierName(dto.getCashierName());
-        int nextSessionNumber = (maxSessionNumber != null ? maxSessionNumber : 0) + 1;
-
-        PosSession session = new PosSession();
-        session.setCashierName(dto.getCashierName());
-        session.setEmployeeId(dto.getEmployeeId()); // Set employee ID
-        session.setSessionNumber(nextSessionNumber);
-        session.setOpeningCash(dto.getOpeningCash() != null ? dto.getOpeningCash() : BigDecimal.ZERO);
-        session.setStatus(PosSession.SessionStatus.OPEN);
-        session.setTotalSales(BigDecimal.ZERO);
-        session.setTransactionCount(0);
-
-        return sessionRepository.save(session);
+        return registry.withCashierLock(cashierName, () -> {
+            Optional<PosSession> existing = getActiveSession(cashierName);
+            if (existing.isPresent()) {
+                return new OpenedSession(existing.get(), true);
+            }
+
+            for (int attempt = 1; ; attempt++) {
+                Integer last = sessionRepository.findMaxSessionNumberByCashierName(cashierName);
+
+                PosSession session = new PosSession();
+                session.setCashierName(cashierName);
+                session.setOpenCashier(cashierName);
+                session.setEmployeeId(dto.getEmployeeId()); // Set employee ID
+                session.setSessionNumber(last != null ? last + 1 : 1);
+                session.setOpeningCash(dto.getOpeningCash() != null ? dto.getOpeningCash() : BigDecimal.ZERO);
+                session.setStatus(PosSession.SessionStatus.OPEN);
+                session.setTotalSales(BigDecimal.ZERO);
+                session.setTransactionCount(0);
+
+                try {
+                    session = sessionRepository.save(session);
+                } catch (DataIntegrityViolationException e) {
+                    // Another node opened a session for this cashier, or took the number
+                    Optional<PosSession> other = sessionRepository.findActiveByCashierName(cashierName);
+                    if (other.isPresent()) {
+                        registry.register(cashierName, other.get().getId());
+                        return new OpenedSession(sessionTotals.applyLive(other).get(), true);
+                    }
+                    if (attempt >= SESSION_NUMBER_ATTEMPTS) throw e;
+                    continue;
+                }
+                registry.register(cashierName, session.getId());
+                return new OpenedSession(session, false);
+            }
+        });
     }
 
     /**
@@ -60,7 +121,7 @@ public class SessionService {
      * @return true if active session exists, false otherwise
      */
     public boolean hasActiveSession(String cashierName) {
-        return sessionRepository.hasActiveSession(cashierName);
+        return findActiveSession(cashierName).isPresent();
     }
 
     /**
@@ -69,43 +130,144 @@ public class SessionService {
      * @return Optional<PosSession> containing active session if found
      */
     public Optional<PosSession> getActiveSession(String cashierName) {
-        return sessionRepository.findActiveByCashierName(cashierName);
+        return sessionTotals.applyLive(findActiveSession(cashierName));
+    }
+
+    // The registry says where to look; the database has the answer
+    private Optional<PosSession> findActiveSession(String cashierName) {
+        Optional<Long> id = registry.activeSessionId(cashierName);
+        if (id.isPresent()) {
+            Optional<PosSession> session = sessionRepository.findByIdAndStatus(id.get(), PosSession.SessionStatus.OPEN);
+            if (session.isPresent()) return session;
+            // Closed behind our back (e.g. on another node)
+            registry.unregister(cashierName, id.get());
+        }
+        Optional<PosSession> session = sessionRepository.findActiveByCashierName(cashierName);
+        session.ifPresent(s -> registry.register(cashierName, s.getId()));
+        return session;
     }
 
     public PosSession closeSession(Long sessionId, CloseSessionDTO dto) {
+        awaitJournaledOrders();
+        // Land the running totals before the row is rewritten
+        sessionTotals.flushAndForget(sessionId);
+
         PosSession session = sessionRepository.findById(sessionId)
             .orElseThrow(() -> new RuntimeException("Session not found"));
 
         if (session.getStatus() == PosSession.SessionStatus.CLOSED) {
             throw new RuntimeException("Session is already closed");
         }
+        try {
+            return close(session, dto);
+        } catch (RuntimeException e) {
+            sessionTotals.reopen(sessionId);
+            throw e;
+        }
+    }
 
-        // Calculate total sales from orders
-        List<Order> orders = orderRepository.findBySessionId(sessionId);
-        BigDecimal totalSales = orders.stream()
-            .filter(o -> o.getStatus() == Order.OrderStatus.COMPLETED)
-            .map(Order::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private PosSession close(PosSession session, CloseSessionDTO dto) {
+        Long sessionId = session.getId();
+
+        Object[] aggregate = orderRepository.sumBySession(List.of(sessionId)).stream()
+            .findFirst()
+            .orElseGet(() -> SessionTotals.emptyAggregate(sessionId));
+        if (!SessionTotals.reconcile(session, aggregate)) {
+            log.warn("Running totals of session {} did not match its orders; using the order aggregate", sessionId);
+        }
 
         session.setClosedAt(LocalDateTime.now());
         session.setClosingCash(dto.getClosingCash());
-        session.setTotalSales(totalSales);
-        session.setTransactionCount(orders.size());
         session.setNotes(dto.getNotes());
         session.setStatus(PosSession.SessionStatus.CLOSED);
+        session.setOpenCashier(null);
 
-        return sessionRepository.save(session);
+        PosSession saved = sessionRepository.save(session);
+        registry.unregister(saved.getCashierName(), saved.getId());
+        return saved;
+    }
+
+    /**
+     * End of day: close every open session in one statement set. Totals for all of them
+     * come from one grouped aggregate over their orders and are written with one batched
+     * UPDATE. Counted cash is per drawer, so closingCash stays empty here.
+     */
+    public List<PosSession> closeAllSessions(String notes) {
+        awaitJournaledOrders();
+        List<Long> ids = sessionRepository.findOpenSessionIds();
+        if (ids.isEmpty()) return List.of();
+
+        List<Long> closed = new ArrayList<>();
+        sessionTotals.overwrite(ids, () -> transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, Object[]> aggregates = new HashMap<>();
+            for (Object[] row : orderRepository.sumBySession(ids)) {
+                aggregates.put((Long) row[0], row);
+            }
+            List<Object[]> rows = ids.stream()
+                .map(id -> aggregates.getOrDefault(id, SessionTotals.emptyAggregate(id)))
+                .toList();
+            closed.addAll(sessionBulkRepository.closeAll(rows, LocalDateTime.now(), notes));
+        }));
+
+        List<PosSession> sessions = sessionRepository.findAllById(closed);
+        sessions.forEach(session -> registry.unregister(session.getCashierName(), session.getId()));
+        return sessions;
+    }
+
+    // Totals are reconciled against the orders table, so journaled orders must be in it
+    private void awaitJournaledOrders() {
+        if (!orderJournal.awaitApplied(journalDrainTimeoutMs)) {
+            throw new RuntimeException("Orders are still being saved from the journal; try again shortly");
+        }
+    }
+
+    /**
+     * X report (session still open) or Z report (closed) from the running totals;
+     * no orders are read.
+     */
+    public Optional<SessionReportDTO> getReport(Long sessionId) {
+        return getSessionById(sessionId).map(SessionService::toReport);
+    }
+
+    private static SessionReportDTO toReport(PosSession session) {
+        SessionReportDTO report = new SessionReportDTO();
+        report.setReportType(session.isActive() ? "X" : "Z");
+        report.setSessionId(session.getId());
+        report.setSessionNumber(session.getSessionNumber());
+        report.setCashierName(session.getCashierName());
+        report.setOpenedAt(session.getOpenedAt());
+        report.setClosedAt(session.getClosedAt());
+
+        report.setGrossSales(session.getTotalSales());
+        report.setReturnsTotal(session.getReturnsTotal());
+        report.setNetSales(session.getTotalSales().add(session.getReturnsTotal()));
+        report.setSaleCount(session.getTransactionCount() - session.getReturnCount());
+        report.setReturnCount(session.getReturnCount());
+        report.setTaxTotal(session.getTaxTotal());
+        report.setDiscountTotal(session.getDiscountTotal());
+
+        report.setCashTotal(session.getCashTotal());
+        report.setCardTotal(session.getCardTotal());
+        report.setOtherTotal(session.getOtherTotal());
+
+        report.setOpeningCash(session.getOpeningCash());
+        report.setExpectedCash(session.getOpeningCash().add(session.getCashTotal()));
+        report.setClosingCash(session.getClosingCash());
+        if (session.getClosingCash() != null) {
+            report.setCashDifference(session.getClosingCash().subtract(report.getExpectedCash()));
+        }
+        return report;
     }
 
     public Optional<PosSession> getSessionById(Long id) {
-        return sessionRepository.findById(id);
+        return sessionTotals.applyLive(sessionRepository.findById(id));
     }
 
     public List<PosSession> getOpenSessions() {
-        return sessionRepository.findByStatus(PosSession.SessionStatus.OPEN);
+        return sessionTotals.applyLive(sessionRepository.findByStatus(PosSession.SessionStatus.OPEN));
     }
 
     public List<PosSession> getAllSessions() {
-        return sessionRepository.findAll();
+        return sessionTotals.applyLive(sessionRepository.findAll());
     }
 }
@@ -0,0 +1,304 @@
+package com.pos.service;
+
+import com.pos.model.Order;
+import com.pos.model.PosSession;
+import com.pos.repository.PosSessionRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Running per-session close-out figures (completed sales, transaction count, returns,
+ * tax, discount, per payment method) kept in striped {@link LongAdder}s in minor units.
+ * Orders add to them after commit without touching the {@code pos_sessions} row; a
+ * scheduled flush (and every close) applies the accumulated amounts with relative
+ * {@code total = total + ?} updates, so concurrent orders neither lose updates nor
+ * queue on the session row lock.
+ *
+ * Reads overlay the pending amounts on the stored row. The flush drains and commits
+ * under a write lock and reads hold the read lock, so a reader never sees an amount
+ * both in the row and still pending (or in neither). Records hold the read lock too,
+ * so an add never lands between a drain and its commit.
+ *
+ * Closing a session takes its totals from its orders, so once a session has been
+ * flushed for close, late records for it are dropped rather than added on top of the
+ * closed row.
+ */
+@Slf4j
+@Service
+public class SessionTotals {
+
+    // Field positions, shared by the accumulators and the findTotals / sumBySession rows (after the id)
+    private static final int SALES = 0, COUNT = 1, RETURNS = 2, RETURN_COUNT = 3, TAX = 4,
+            DISCOUNT = 5, CASH = 6, CARD = 7, OTHER = 8, FIELDS = 9;
+
+    private static final class Pending {
+        final LongAdder[] values = new LongAdder[FIELDS];
+
+        Pending() {
+            for (int i = 0; i < FIELDS; i++) values[i] = new LongAdder();
+        }
+
+        long get(int field) {
+            return values[field].sum();
+        }
+
+        long[] drain() {
+            long[] delta = new long[FIELDS];
+            for (int i = 0; i < FIELDS; i++) delta[i] = values[i].sumThenReset();
+            return delta;
+        }
+
+        void add(long[] delta) {
+            for (int i = 0; i < FIELDS; i++) values[i].add(delta[i]);
+        }
+    }
+
+    private static final Pending NONE = new Pending();
+
+    // Late records only come from transactions that were in flight at close
+    private static final long CLOSED_RETENTION_MS = 3_600_000;
+
+    private final PosSessionRepository sessionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final Map<Long, Long> closedAt = new ConcurrentHashMap<>();
+
+    public SessionTotals(PosSessionRepository sessionRepository, PlatformTransactionManager transactionManager) {
+        this.sessionRepository = sessionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Add the orders to their session's totals once the surrounding transaction commits.
+     */
+    public void recordAfterCommit(Long sessionId, List<Order> orders) {
+        List<Order> committed = new ArrayList<>(orders);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed.forEach(order -> record(sessionId, order));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed.forEach(order -> record(sessionId, order));
+            }
+        });
+    }
+
+    public void record(Long sessionId, Order order) {
+        long amount = toMinor(order.getTotalAmount());
+        flushLock.readLock().lock();
+        try {
+            if (closedAt.containsKey(sessionId)) {
+                log.warn("Order {} recorded after session {} was closed; left to the close-out aggregate",
+                        order.getOrderNumber(), sessionId);
+                return;
+            }
+            LongAdder[] v = pending.computeIfAbsent(sessionId, id -> new Pending()).values;
+            v[COUNT].increment();
+            if (order.getOrderType() == Order.OrderType.RETURN) {
+                v[RETURNS].add(amount);
+                v[RETURN_COUNT].increment();
+            } else if (order.getStatus() == Order.OrderStatus.COMPLETED) {
+                v[SALES].add(amount);
+            }
+            v[TAX].add(toMinor(order.getTaxAmount()));
+            v[DISCOUNT].add(toMinor(order.getDiscountAmount()));
+            switch (order.getPaymentMethod() != null ? order.getPaymentMethod() : Order.PaymentMethod.CASH) {
+                case CASH -> v[CASH].add(amount);
+                case CARD -> v[CARD].add(amount);
+                default -> v[OTHER].add(amount);
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the totals on these sessions with the live values: the stored row re-read
+     * under the read lock plus whatever is still pending. The sessions are detached first
+     * so the overlaid values can never be written back. For responses only.
+     */
+    public <T extends Collection<PosSession>> T applyLive(T sessions) {
+        if (sessions.isEmpty()) return sessions;
+        Map<Long, PosSession> byId = new HashMap<>();
+        sessions.forEach(s -> {
+            if (entityManager.contains(s)) entityManager.detach(s);
+            byId.put(s.getId(), s);
+        });
+
+        flushLock.readLock().lock();
+        try {
+            for (Object[] row : sessionRepository.findTotals(byId.keySet())) {
+                PosSession session = byId.get((Long) row[0]);
+                setTotals(session, row, pending.getOrDefault(session.getId(), NONE));
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        return sessions;
+    }
+
+    public Optional<PosSession> applyLive(Optional<PosSession> session) {
+        session.ifPresent(s -> applyLive(List.of(s)));
+        return session;
+    }
+
+    /**
+     * Compare the session's totals with a {@code sumBySession} row computed from its
+     * orders and take the row's figures where they differ. Returns false on a mismatch.
+     */
+    public static boolean reconcile(PosSession session, Object[] aggregate) {
+        Object[] stored = {session.getId(), session.getTotalSales(), session.getTransactionCount(),
+                session.getReturnsTotal(), session.getReturnCount(), session.getTaxTotal(),
+                session.getDiscountTotal(), session.getCashTotal(), session.getCardTotal(), session.getOtherTotal()};
+        boolean matches = true;
+        for (int i = 1; i <= FIELDS; i++) {
+            if (toMinor(stored[i]) != toMinor(aggregate[i])) {
+                matches = false;
+                break;
+            }
+        }
+        if (!matches) setTotals(session, aggregate, NONE);
+        return matches;
+    }
+
+    /**
+     * A {@code sumBySession} row for a session without orders.
+     */
+    public static Object[] emptyAggregate(Long sessionId) {
+        Object[] row = new Object[FIELDS + 1];
+        Arrays.fill(row, 0L);
+        row[0] = sessionId;
+        return row;
+    }
+
+    @Scheduled(fixedDelayString = "${pos.session-totals.flush-interval-ms:1000}")
+    public void flush() {
+        long expired = System.currentTimeMillis() - CLOSED_RETENTION_MS;
+        closedAt.values().removeIf(at -> at < expired);
+        flush(pending);
+    }
+
+    /**
+     * Write one session's pending amounts now, before it is closed, and stop tracking it:
+     * records for it are dropped from here on. Call {@link #reopen} if the close fails.
+     */
+    public void flushAndForget(Long sessionId) {
+        flushLock.writeLock().lock();
+        try {
+            closedAt.put(sessionId, System.currentTimeMillis());
+            Pending p = pending.remove(sessionId);
+            if (p != null) flush(Map.of(sessionId, p));
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Track a session again after {@link #flushAndForget} when it stayed open.
+     */
+    public void reopen(Long sessionId) {
+        closedAt.remove(sessionId);
+    }
+
+    /**
+     * Close these sessions with an update that sets their totals outright (from their
+     * orders), then drop what was pending for them and any later records. Flushes, reads
+     * and records wait meanwhile, so nothing is counted twice; if the update fails the
+     * pending amounts are kept.
+     */
+    public void overwrite(Collection<Long> sessionIds, Runnable update) {
+        flushLock.writeLock().lock();
+        try {
+            update.run();
+            long now = System.currentTimeMillis();
+            sessionIds.forEach(id -> {
+                pending.remove(id);
+                closedAt.put(id, now);
+            });
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private void flush(Map<Long, Pending> sessions) {
+        flushLock.writeLock().lock();
+        try {
+            Map<Long, long[]> batch = new LinkedHashMap<>();
+            for (Map.Entry<Long, Pending> entry : sessions.entrySet()) {
+                long[] delta = entry.getValue().drain();
+                if (Arrays.stream(delta).anyMatch(v -> v != 0)) batch.put(entry.getKey(), delta);
+            }
+            if (batch.isEmpty()) return;
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> batch.forEach((id, d) ->
+                        sessionRepository.addTotals(id, fromMinor(d[SALES]), (int) d[COUNT],
+                                fromMinor(d[RETURNS]), (int) d[RETURN_COUNT], fromMinor(d[TAX]),
+                                fromMinor(d[DISCOUNT]), fromMinor(d[CASH]), fromMinor(d[CARD]), fromMinor(d[OTHER]))));
+            } catch (Exception e) {
+                log.warn("Session totals flush for {} sessions failed, will retry: {}", batch.size(), e.getMessage());
+                batch.forEach((id, d) -> pending.computeIfAbsent(id, k -> new Pending()).add(d));
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static void setTotals(PosSession session, Object[] row, Pending p) {
+        session.setTotalSales(plus(row[1 + SALES], p.get(SALES)));
+        session.setTransactionCount((int) (toLong(row[1 + COUNT]) + p.get(COUNT)));
+        session.setReturnsTotal(plus(row[1 + RETURNS], p.get(RETURNS)));
+        session.setReturnCount((int) (toLong(row[1 + RETURN_COUNT]) + p.get(RETURN_COUNT)));
+        session.setTaxTotal(plus(row[1 + TAX], p.get(TAX)));
+        session.setDiscountTotal(plus(row[1 + DISCOUNT], p.get(DISCOUNT)));
+        session.setCashTotal(plus(row[1 + CASH], p.get(CASH)));
+        session.setCardTotal(plus(row[1 + CARD], p.get(CARD)));
+        session.setOtherTotal(plus(row[1 + OTHER], p.get(OTHER)));
+    }
+
+    private static long toMinor(Object amount) {
+        if (amount == null) return 0;
+        if (amount instanceof BigDecimal d) return d.movePointRight(2).longValue();
+        return toLong(amount) * 100;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    private static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+
+    private static BigDecimal plus(Object stored, long minor) {
+        BigDecimal base = stored instanceof BigDecimal d ? d : BigDecimal.valueOf(toLong(stored));
+        return minor == 0 ? base.setScale(2) : base.add(fromMinor(minor));
+    }
+}
@@ -0,0 +1,107 @@
+package com.pos.service;
+
+import com.pos.repository.ProductBulkRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind stock movements. Sales and returns add signed deltas to a per-barcode
+ * {@link LongAdder} (striped, so terminals selling the same SKU do not contend on one
+ * counter) once their order commits; a scheduled flush drains the counters and applies
+ * them with one batched {@code stock = stock + ?} statement and adjusts the cached
+ * catalog entries in place, so hot SKUs stay in memory. No product row is locked
+ * while a basket is checked out.
+ *
+ * A failed flush puts its deltas back, so movements are retried rather than lost.
+ * Movements still pending when the JVM stops are flushed on shutdown.
+ */
+@Slf4j
+@Service
+public class StockService {
+
+    private final ProductBulkRepository bulkRepository;
+    private final ProductCatalogIndex catalogIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public StockService(ProductBulkRepository bulkRepository,
+                        ProductCatalogIndex catalogIndex,
+                        PlatformTransactionManager transactionManager) {
+        this.bulkRepository = bulkRepository;
+        this.catalogIndex = catalogIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Record movements (barcode -> signed quantity, negative for a sale) once the
+     * surrounding transaction commits; immediately when there is none.
+     */
+    public void recordAfterCommit(Map<String, Long> movements) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(movements);
+            return;
+        }
+        Map<String, Long> copy = new HashMap<>(movements);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(copy);
+            }
+        });
+    }
+
+    public void record(Map<String, Long> movements) {
+        movements.forEach((barcode, delta) -> {
+            if (barcode != null && delta != null && delta != 0) {
+                pending.computeIfAbsent(barcode, k -> new LongAdder()).add(delta);
+            }
+        });
+    }
+
+    /**
+     * Movement recorded for this barcode but not yet written to the products table.
+     */
+    public long pendingDelta(String barcode) {
+        LongAdder adder = pending.get(barcode);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${pos.stock.flush-interval-ms:1000}")
+    public void flush() {
+        Map<String, Long> batch = new HashMap<>();
+        pending.forEach((barcode, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) batch.put(barcode, delta);
+        });
+        if (batch.isEmpty()) return;
+
+        // Microseconds, as stored: the index compares it with updated_at read back from the row
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        try {
+            transactionTemplate.executeWithoutResult(status -> bulkRepository.applyStockDeltas(batch, now));
+            catalogIndex.applyStockDeltas(batch, now);
+        } catch (Exception e) {
+            log.warn("Stock flush of {} products failed, will retry: {}", batch.size(), e.getMessage());
+            record(batch);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
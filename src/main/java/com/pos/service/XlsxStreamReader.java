@@ -0,0 +1,183 @@
+package com.pos.service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader for the first sheet of an XLSX file, built on POI's event model
+ * (XSSFReader + SAX). Rows are handed to the consumer one at a time, so memory use
+ * is bounded by the shared strings table rather than by the number of rows.
+ */
+public final class XlsxStreamReader {
+
+    private XlsxStreamReader() {
+    }
+
+    /**
+     * Read every row of the first sheet, header included.
+     * The upload is spooled to a temp file first: opening an OPC package from a
+     * stream would inflate every zip entry into memory.
+     */
+    public static void read(InputStream in, Consumer<Row> consumer) throws Exception {
+        Path tmp = Files.createTempFile("pos-import-", ".xlsx");
+        try {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            read(tmp.toFile(), consumer);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static void read(File file, Consumer<Row> consumer) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) return;
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(strings, consumer));
+                parser.parse(new InputSource(sheet));
+            }
+        }
+    }
+
+    /**
+     * One sheet row. Cell values are kept as the raw text from the sheet XML;
+     * numeric cells are flagged so callers can mirror the usermodel's CellType checks.
+     */
+    public static final class Row {
+        private final int rowNum;
+        private final List<String> values;
+        private final List<Boolean> numeric;
+
+        private Row(int rowNum, List<String> values, List<Boolean> numeric) {
+            this.rowNum = rowNum;
+            this.values = values;
+            this.numeric = numeric;
+        }
+
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        /**
+         * Raw cell text, or null when the cell is absent.
+         */
+        public String getText(int col) {
+            return col < values.size() ? values.get(col) : null;
+        }
+
+        public boolean isNumeric(int col) {
+            return col < numeric.size() && Boolean.TRUE.equals(numeric.get(col));
+        }
+
+        public Double getNumber(int col) {
+            if (!isNumeric(col)) return null;
+            try {
+                return Double.parseDouble(getText(col));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable strings;
+        private final Consumer<Row> consumer;
+
+        private final StringBuilder text = new StringBuilder();
+        private List<String> values;
+        private List<Boolean> numeric;
+        private int rowNum;
+        private int nextCol;
+        private int col;
+        private String type;
+        private boolean collecting;
+
+        SheetHandler(ReadOnlySharedStringsTable strings, Consumer<Row> consumer) {
+            this.strings = strings;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    values = new ArrayList<>();
+                    numeric = new ArrayList<>();
+                    String r = attributes.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+                    nextCol = 0;
+                }
+                case "c" -> {
+                    String ref = attributes.getValue("r");
+                    col = ref != null ? new CellReference(ref).getCol() : nextCol;
+                    nextCol = col + 1;
+                    type = attributes.getValue("t");
+                    text.setLength(0);
+                }
+                case "v", "t" -> collecting = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> collecting = false;
+                case "c" -> setCell(col, cellValue(), type == null || "n".equals(type));
+                case "row" -> consumer.accept(new Row(rowNum, values, numeric));
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) text.append(ch, start, length);
+        }
+
+        private String cellValue() {
+            String raw = text.toString();
+            if ("s".equals(type)) {
+                if (raw.isEmpty()) return null;
+                return strings.getItemAt(Integer.parseInt(raw.trim())).getString();
+            }
+            if ("b".equals(type)) {
+                return "1".equals(raw) ? "true" : "false";
+            }
+            return raw.isEmpty() ? null : raw;
+        }
+
+        private void setCell(int index, String value, boolean isNumber) {
+            while (values.size() <= index) {
+                values.add(null);
+                numeric.add(Boolean.FALSE);
+            }
+            values.set(index, value);
+            numeric.set(index, isNumber && value != null);
+        }
+    }
+}
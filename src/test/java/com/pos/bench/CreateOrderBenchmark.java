@@ -0,0 +1,108 @@
+package com.pos.bench;
+
+import com.pos.PosApplication;
+import com.pos.dto.CartItemDTO;
+import com.pos.dto.CreateOrderDTO;
+import com.pos.dto.OrderSnapshot;
+import com.pos.service.OrderService;
+import com.pos.service.SessionService;
+import com.pos.support.PosFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * createOrder for a 50-line sale on H2 (test profile), with JDBC insert batching off
+ * ({@code batchSize=1}, one INSERT per row as with the former IDENTITY ids, which ruled
+ * batching out) and on ({@code batchSize=50}, as in the MySQL profiles). Prints the
+ * statements prepared per order next to JMH's latency.
+ *
+ * In-memory H2 has no round trip per statement, so there the latencies come out about
+ * even; {@code -Dbench.profile=dev} runs against the dev MySQL database, where each
+ * statement saved is a round trip saved.
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.pos.bench.CreateOrderBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateOrderBenchmark {
+
+    private static final int LINES = 50;
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private Statistics statistics;
+    private Long sessionId;
+    private CreateOrderDTO order;
+
+    private long orders;
+    private long statements;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(PosApplication.class).run(
+                "--spring.profiles.active=" + System.getProperty("bench.profile", "test"),
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "--server.port=0",
+                "--logging.level.root=WARN");
+        orderService = context.getBean(OrderService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        sessionId = PosFixtures.openSession(context.getBean(SessionService.class), "bench");
+
+        // Twelve seeded products (DataLoader), repeated across the lines
+        List<CartItemDTO> items = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            items.add(PosFixtures.item(String.format("%03d", i % 12 + 1), 1));
+        }
+        order = PosFixtures.cashSale(items);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounts() {
+        orders = 0;
+        statements = 0;
+    }
+
+    @Benchmark
+    public OrderSnapshot createOrder() throws Exception {
+        long before = statistics.getPrepareStatementCount();
+        OrderSnapshot created = orderService.createOrder(sessionId, order);
+        statements += statistics.getPrepareStatementCount() - before;
+        orders++;
+        return created;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.printf("%nbatchSize=%d: %.1f statements per createOrder%n", batchSize, (double) statements / orders);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(CreateOrderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,63 @@
+package com.pos.bench;
+
+import com.pos.service.LegacyPricing;
+import com.pos.service.PricingEngine;
+import com.pos.service.PricingEngine.LineInput;
+import com.pos.service.PricingEngine.Quote;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pricing a cart with {@link PricingEngine} (long minor units) against the BigDecimal
+ * loop it replaced, for a small and a large cart of typical prices (2 decimals, 15% VAT).
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.pos.bench.PricingEngineBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingEngineBenchmark {
+
+    @Param({"5", "50"})
+    public int lines;
+
+    private final PricingEngine engine = new PricingEngine();
+    private List<LineInput> cart;
+
+    @Setup(Level.Trial)
+    public void buildCart() {
+        cart = new ArrayList<>(lines);
+        BigDecimal vat = new BigDecimal("0.15");
+        for (int i = 0; i < lines; i++) {
+            BigDecimal price = BigDecimal.valueOf(199 + i * 37L, 2);
+            BigDecimal discount = i % 3 == 0 ? BigDecimal.valueOf(50, 2) : null;
+            cart.add(new LineInput(price, 1 + i % 4, discount, vat));
+        }
+    }
+
+    @Benchmark
+    public Quote minorUnits() {
+        return engine.price(cart, false);
+    }
+
+    @Benchmark
+    public Quote bigDecimal() {
+        return LegacyPricing.price(cart, false);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(PricingEngineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.pos.controller;
+
+import com.pos.dto.OrderSnapshot;
+import com.pos.service.OrderService;
+import com.pos.service.SessionService;
+import com.pos.support.PosFixtures;
+import com.pos.support.StatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Each order read endpoint runs a fixed number of statements however many orders,
+ * items and products are involved: no lazy loading while the response is serialized.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderEndpointStatementCountTest {
+
+    private static final int ORDERS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    private Long sessionId;
+    private OrderSnapshot order;
+
+    @BeforeEach
+    void createOrders() throws Exception {
+        sessionId = PosFixtures.openSession(sessionService, "statement-count-" + System.nanoTime());
+
+        for (int i = 0; i < ORDERS; i++) {
+            order = orderService.createOrder(sessionId, PosFixtures.cashSale(
+                    PosFixtures.item(String.format("%03d", i % 10 + 1), 1),
+                    PosFixtures.item(String.format("%03d", i % 10 + 2), 2),
+                    PosFixtures.item(String.format("%03d", i % 10 + 3), 1)));
+        }
+    }
+
+    @Test
+    void sessionOrders() throws Exception {
+        assertStatements(get("/api/orders/session/{id}", sessionId), 1);
+    }
+
+    @Test
+    void search() throws Exception {
+        assertStatements(post("/api/orders/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sessionId\": " + sessionId + "}"), 1);
+    }
+
+    @Test
+    void unsynced() throws Exception {
+        assertStatements(get("/api/orders/unsynced"), 1);
+    }
+
+    @Test
+    void orderDetail() throws Exception {
+        assertStatements(get("/api/orders/{id}", order.getId()), 1);
+    }
+
+    @Test
+    void orderByNumber() throws Exception {
+        assertStatements(get("/api/orders/number/{number}", order.getOrderNumber()), 1);
+    }
+
+    @Test
+    void orderJson() throws Exception {
+        assertStatements(get("/api/orders/{id}/json", order.getId()), 1);
+    }
+
+    private void assertStatements(RequestBuilder request, int expected) throws Exception {
+        StatementCounter.reset();
+        mockMvc.perform(request).andExpect(status().isOk());
+        assertThat(StatementCounter.count()).isEqualTo(expected);
+    }
+}
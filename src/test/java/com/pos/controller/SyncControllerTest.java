@@ -0,0 +1,71 @@
+package com.pos.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.service.OrderService;
+import com.pos.service.SessionService;
+import com.pos.support.PosFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * An ack names the orders the agent received; an ack for a whole lease is refused, so
+ * leased orders that never reached the agent cannot be marked synced.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SyncControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Test
+    void ackTakesTheClaimedOrderIds() throws Exception {
+        Long sessionId = PosFixtures.openSession(sessionService, "sync-ack");
+        orderService.createOrder(sessionId, PosFixtures.cashSale(PosFixtures.item("001", 1)));
+
+        MvcResult claim = mockMvc.perform(post("/api/sync/claim").param("limit", "5000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        JsonNode lease = objectMapper.readTree(mockMvc.perform(asyncDispatch(claim))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        String leaseId = lease.get("leaseId").asText();
+        JsonNode orderIds = lease.get("orderIds");
+        assertThat(orderIds.size()).isPositive();
+
+        mockMvc.perform(post("/api/sync/ack")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"leaseId\": \"" + leaseId + "\"}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/sync/ack")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"leaseId\": \"" + leaseId + "\", \"orderIds\": " + orderIds + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.acked").value(orderIds.size()));
+    }
+}
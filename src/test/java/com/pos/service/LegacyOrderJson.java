@@ -0,0 +1,95 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pos.model.Order;
+import com.pos.model.OrderItem;
+
+import java.util.List;
+
+/**
+ * {@code OrderService.generateOrderJson} as it was before {@link OrderJsonService}, kept
+ * as the reference the streamed document must match. Written compact rather than
+ * pretty-printed, as the stored documents are now.
+ */
+public final class LegacyOrderJson {
+
+    private LegacyOrderJson() {
+    }
+
+    public static String generate(ObjectMapper objectMapper, Order order, List<OrderItem> items) throws Exception {
+        ObjectNode root = objectMapper.createObjectNode();
+
+        if (order.getOrderType() == Order.OrderType.SALE) {
+            root.put("draft", false);
+            ArrayNode ordersArray = objectMapper.createArrayNode();
+
+            ObjectNode orderNode = objectMapper.createObjectNode();
+            orderNode.put("id", order.getOrderNumber());
+
+            ObjectNode dataNode = objectMapper.createObjectNode();
+            dataNode.put("name", "Order " + order.getOrderNumber());
+            dataNode.put("amount_paid", order.getTotalAmount().doubleValue());
+            dataNode.put("amount_total", order.getTotalAmount().doubleValue());
+            dataNode.put("amount_tax", order.getTaxAmount().doubleValue());
+            dataNode.put("amount_return", 0);
+
+            ObjectNode customerNode = objectMapper.createObjectNode();
+            customerNode.put("phone", order.getCustomerPhone() != null ? order.getCustomerPhone() : "");
+            customerNode.put("name", order.getCustomerName() != null ? order.getCustomerName() : "");
+            if (order.getCustomerVat() != null && !order.getCustomerVat().isEmpty()) {
+                customerNode.put("vat", order.getCustomerVat());
+            }
+            dataNode.set("customer", customerNode);
+
+            ArrayNode linesArray = objectMapper.createArrayNode();
+            for (OrderItem item : items) {
+                ObjectNode lineNode = objectMapper.createObjectNode();
+                lineNode.put("qty", item.getQuantity());
+                if (item.isReward()) {
+                    lineNode.put("price_unit", 0);
+                } else {
+                    lineNode.put("price_unit", item.getUnitPrice().doubleValue());
+                }
+                lineNode.put("product_id", item.getProduct().getId());
+                lineNode.put("discount", item.getDiscount().doubleValue());
+                if (item.getPromotionName() != null) {
+                    lineNode.put("promotion", item.getPromotionName());
+                }
+                if (item.isReward()) {
+                    lineNode.put("is_reward", true);
+                }
+                linesArray.add(lineNode);
+            }
+            dataNode.set("order_lines", linesArray);
+
+            orderNode.set("data", dataNode);
+            ordersArray.add(orderNode);
+            root.set("orders", ordersArray);
+
+        } else {
+            ArrayNode returnsArray = objectMapper.createArrayNode();
+
+            ObjectNode returnNode = objectMapper.createObjectNode();
+            returnNode.put("sale_order_name", order.getOriginalOrderNumber());
+
+            ArrayNode returnLinesArray = objectMapper.createArrayNode();
+            for (OrderItem item : items) {
+                ObjectNode lineNode = objectMapper.createObjectNode();
+                lineNode.put("qty", Math.abs(item.getQuantity()));
+                lineNode.put("price_unit", item.getUnitPrice().doubleValue());
+                lineNode.put("product_id", item.getProduct().getId());
+                lineNode.put("discount", item.getDiscount().doubleValue());
+                returnLinesArray.add(lineNode);
+            }
+            returnNode.set("return_lines", returnLinesArray);
+            returnNode.put("reason", order.getReturnReason() != null ? order.getReturnReason() : "Customer return");
+
+            returnsArray.add(returnNode);
+            root.set("returns", returnsArray);
+        }
+
+        return objectMapper.writeValueAsString(root);
+    }
+}
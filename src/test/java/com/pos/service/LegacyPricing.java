@@ -0,0 +1,51 @@
+package com.pos.service;
+
+import com.pos.service.PricingEngine.LineInput;
+import com.pos.service.PricingEngine.PricedLine;
+import com.pos.service.PricingEngine.Quote;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pricing loop of {@code OrderService.buildOrder} as it was before
+ * {@link PricingEngine}, kept as the reference the engine must match.
+ */
+public final class LegacyPricing {
+
+    private LegacyPricing() {
+    }
+
+    public static Quote price(List<LineInput> lines, boolean isReturn) {
+        List<PricedLine> priced = new ArrayList<>(lines.size());
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal discountTotal = BigDecimal.ZERO;
+        BigDecimal taxTotal = BigDecimal.ZERO;
+
+        for (LineInput item : lines) {
+            int actualQuantity = isReturn ? -Math.abs(item.quantity()) : item.quantity();
+
+            BigDecimal lineSubtotal = item.unitPrice().multiply(BigDecimal.valueOf(Math.abs(actualQuantity)));
+            BigDecimal lineDiscount = item.discount() != null ? item.discount() : BigDecimal.ZERO;
+            BigDecimal lineTax = lineSubtotal.subtract(lineDiscount)
+                    .multiply(item.taxRate())
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            priced.add(new PricedLine(lineSubtotal, lineDiscount, lineTax,
+                    lineSubtotal.subtract(lineDiscount).add(lineTax)));
+
+            subtotal = subtotal.add(lineSubtotal);
+            discountTotal = discountTotal.add(lineDiscount);
+            taxTotal = taxTotal.add(lineTax);
+        }
+
+        if (isReturn) {
+            subtotal = subtotal.negate();
+            discountTotal = discountTotal.negate();
+            taxTotal = taxTotal.negate();
+        }
+        return new Quote(priced, subtotal, discountTotal, taxTotal, subtotal.subtract(discountTotal).add(taxTotal));
+    }
+}
@@ -0,0 +1,210 @@
+package com.pos.service;
+
+import com.pos.model.Loyalty;
+import com.pos.repository.LoyaltyRepository;
+import com.pos.service.LoyaltyEngine.CartLine;
+import com.pos.service.LoyaltyEngine.LineLoyalty;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Loyalty evaluation against programs served by a mocked repository: set-based DISCOUNT
+ * programs pooled across lines, BUY_X_GET_Y reward allocation, and index swaps on refresh.
+ */
+class LoyaltyEngineTest {
+
+    private final LoyaltyRepository repository = mock(LoyaltyRepository.class);
+    private final LoyaltyEngine engine = new LoyaltyEngine(repository);
+
+    @Test
+    void fixedDiscountPerCompleteSetOfMinQuantity() {
+        programs(discount(1, "3 for 5 off", "A", 3, "5.00", null));
+
+        // 7 units make two sets of 3; the seventh is not discounted
+        assertThat(engine.evaluate(List.of(line("A", 7, "10.00"))))
+                .containsExactly(new LineLoyalty(new BigDecimal("10.00"), false, "3 for 5 off", true));
+        assertThat(engine.evaluate(List.of(line("A", 2, "10.00"))))
+                .containsExactly(new LineLoyalty(new BigDecimal("0.00"), false, null, true));
+    }
+
+    @Test
+    void percentDiscountOnlyCoversTheSetsPrice() {
+        programs(discount(1, "2 for 10%", "A", 2, null, "10"));
+
+        // One set of 2 at 10.00; the third unit pays full price
+        assertThat(engine.evaluate(List.of(line("A", 3, "10.00"))))
+                .containsExactly(new LineLoyalty(new BigDecimal("2.00"), false, "2 for 10%", true));
+    }
+
+    @Test
+    void discountPoolsUnitsAcrossLinesAndSplitsByPrice() {
+        programs(discount(1, "Any 3 for 6 off", "A,B", 3, "6.00", null));
+
+        // Neither line reaches 3 alone; together they make one set worth 40.00
+        List<LineLoyalty> result = engine.evaluate(List.of(line("A", 2, "5.00"), line("B", 1, "30.00")));
+
+        assertThat(result).containsExactly(
+                new LineLoyalty(new BigDecimal("1.50"), false, "Any 3 for 6 off", true),
+                new LineLoyalty(new BigDecimal("4.50"), false, "Any 3 for 6 off", true));
+    }
+
+    @Test
+    void buyXGetYFreesTheCheapestRewardUnits() {
+        programs(buyXGetY(1, "Buy 2 get 1", "T", "R1,R2", 2, 1));
+
+        // 4 triggers earn 2 free units, taken from the cheaper reward line first
+        List<LineLoyalty> result = engine.evaluate(List.of(
+                line("T", 4, "3.00"), line("R1", 1, "2.00"), line("R2", 3, "1.00")));
+
+        assertThat(result).containsExactly(
+                new LineLoyalty(new BigDecimal("0.00"), false, null, true),
+                new LineLoyalty(new BigDecimal("0.00"), false, null, true),
+                new LineLoyalty(new BigDecimal("2.00"), false, "Buy 2 get 1", true));
+    }
+
+    @Test
+    void buyXGetYMarksAWhollyFreeLineAsReward() {
+        programs(buyXGetY(1, "Buy 2 get 1", "T", "R", 2, 1));
+
+        assertThat(engine.evaluate(List.of(line("T", 2, "3.00"), line("R", 1, "2.00"))))
+                .containsExactly(
+                        new LineLoyalty(new BigDecimal("0.00"), false, null, true),
+                        new LineLoyalty(new BigDecimal("2.00"), true, "Buy 2 get 1", true));
+    }
+
+    @Test
+    void buyXGetYOnOneProductKeepsTriggerUnits() {
+        programs(buyXGetY(1, "3 for 2", "A", "A", 2, 1));
+
+        // Units used as triggers cannot also be the free one
+        assertThat(engine.evaluate(List.of(line("A", 2, "4.00"))))
+                .containsExactly(new LineLoyalty(new BigDecimal("0.00"), false, null, true));
+        assertThat(engine.evaluate(List.of(line("A", 3, "4.00"))))
+                .containsExactly(new LineLoyalty(new BigDecimal("4.00"), false, "3 for 2", true));
+    }
+
+    @Test
+    void freeUnitsDoNotCountTowardsDiscounts() {
+        programs(buyXGetY(1, "Buy 1 get 1", "T", "A", 1, 1),
+                discount(2, "2 for 1 off", "A", 2, "1.00", null));
+
+        // One of the two A units is free, so the discount set of 2 is not complete
+        assertThat(engine.evaluate(List.of(line("T", 1, "5.00"), line("A", 2, "3.00"))))
+                .containsExactly(
+                        new LineLoyalty(new BigDecimal("0.00"), false, null, true),
+                        new LineLoyalty(new BigDecimal("3.00"), false, "Buy 1 get 1", true));
+    }
+
+    @Test
+    void linesNoProgramCoversAreMarkedUncovered() {
+        programs(discount(1, "3 for 5 off", "A", 3, "5.00", null));
+
+        // A is covered even below minQuantity; Z belongs to no program
+        assertThat(engine.evaluate(List.of(line("A", 1, "10.00"), line("Z", 1, "4.00"))))
+                .containsExactly(
+                        new LineLoyalty(new BigDecimal("0.00"), false, null, true),
+                        new LineLoyalty(new BigDecimal("0.00"), false, null, false));
+    }
+
+    @Test
+    void refreshSwapsInTheNewProgramsAndKeepsThemOnFailure() {
+        programs(discount(1, "Old", "A", 1, "1.00", null));
+        assertThat(engine.evaluate(List.of(line("A", 1, "10.00"))).get(0).promotionName()).isEqualTo("Old");
+
+        programs(discount(2, "New", "A", 1, "2.00", null));
+        engine.refresh();
+        assertThat(engine.evaluate(List.of(line("A", 1, "10.00"))))
+                .containsExactly(new LineLoyalty(new BigDecimal("2.00"), false, "New", true));
+
+        when(repository.findByActiveTrue()).thenThrow(new RuntimeException("database down"));
+        engine.refresh();
+        assertThat(engine.evaluate(List.of(line("A", 1, "10.00"))).get(0).promotionName()).isEqualTo("New");
+    }
+
+    @Test
+    void evaluationNeverSeesAHalfRecompiledIndex() throws Exception {
+        // Both programs of a generation share a name; a mix would show two names in one cart
+        List<Loyalty> first = List.of(discount(1, "Gen 1", "A", 1, "1.00", null),
+                buyXGetY(2, "Gen 1", "T", "R", 1, 1));
+        List<Loyalty> second = List.of(discount(3, "Gen 2", "A", 1, "2.00", null),
+                buyXGetY(4, "Gen 2", "T", "R", 1, 1));
+        when(repository.findByActiveTrue()).thenReturn(first, second, first, second);
+        engine.refresh();
+        List<CartLine> cart = List.of(line("A", 1, "10.00"), line("T", 1, "5.00"), line("R", 1, "2.00"));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> checks = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            checks.add(readers.submit(() -> {
+                int evaluations = 0;
+                while (running.get()) {
+                    List<LineLoyalty> result = engine.evaluate(cart);
+                    assertThat(result.get(2).promotionName()).isEqualTo(result.get(0).promotionName());
+                    assertThat(result.get(0).discount())
+                            .isEqualByComparingTo("Gen 1".equals(result.get(0).promotionName()) ? "1.00" : "2.00");
+                    evaluations++;
+                }
+                return evaluations;
+            }));
+        }
+        for (int i = 0; i < 2_000; i++) {
+            when(repository.findByActiveTrue()).thenReturn(i % 2 == 0 ? second : first);
+            engine.refresh();
+        }
+        running.set(false);
+        for (Future<Integer> check : checks) {
+            assertThat(check.get()).isPositive();
+        }
+        readers.shutdown();
+        assertThat(readers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void programs(Loyalty... loyalties) {
+        when(repository.findByActiveTrue()).thenReturn(List.of(loyalties));
+        engine.refresh();
+    }
+
+    private static CartLine line(String barcode, int quantity, String price) {
+        return new CartLine(barcode, quantity, new BigDecimal(price));
+    }
+
+    private static Loyalty discount(long id, String name, String barcodes, int minQuantity,
+                                    String amount, String percent) {
+        Loyalty loyalty = new Loyalty();
+        loyalty.setId(id);
+        loyalty.setName(name);
+        loyalty.setType(0);
+        loyalty.setTriggerProductIds(barcodes);
+        loyalty.setRewardProductIds(barcodes);
+        loyalty.setMinQuantity(minQuantity);
+        loyalty.setDiscountAmount(amount != null ? new BigDecimal(amount) : null);
+        loyalty.setDiscountPercent(percent != null ? new BigDecimal(percent) : BigDecimal.ZERO);
+        return loyalty;
+    }
+
+    private static Loyalty buyXGetY(long id, String name, String triggers, String rewards,
+                                    int minQuantity, int rewardQuantity) {
+        Loyalty loyalty = new Loyalty();
+        loyalty.setId(id);
+        loyalty.setName(name);
+        loyalty.setType(1);
+        loyalty.setTriggerProductIds(triggers);
+        loyalty.setRewardProductIds(rewards);
+        loyalty.setMinQuantity(minQuantity);
+        loyalty.setRewardQuantity(rewardQuantity);
+        return loyalty;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pos.service;
+
+import com.pos.model.Loyalty;
+import com.pos.repository.LoyaltyRepository;
+import com.pos.service.LoyaltyEngine.CartLine;
+import com.pos.service.LoyaltyEngine.LineLoyalty;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A program written straight through the repository (as seeding and the Excel import do)
+ * reaches checkout without waiting for the scheduled refresh.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoyaltyRecompileTest {
+
+    @Autowired
+    private LoyaltyEngine loyaltyEngine;
+
+    @Autowired
+    private LoyaltyRepository loyaltyRepository;
+
+    @Test
+    void repositoryWriteRecompilesAfterCommit() throws Exception {
+        List<CartLine> cart = List.of(new CartLine("REPO-1", 2, new BigDecimal("10.00")));
+        assertThat(loyaltyEngine.evaluate(cart).get(0).promotionName()).isNull();
+
+        Loyalty loyalty = new Loyalty();
+        loyalty.setName("Repository write");
+        loyalty.setType(0);
+        loyalty.setTriggerProductIds("REPO-1");
+        loyalty.setRewardProductIds("REPO-1");
+        loyalty.setMinQuantity(2);
+        loyalty.setDiscountAmount(new BigDecimal("3.00"));
+        loyalty.setStartDate(LocalDateTime.now().minusDays(1));
+        loyalty.setEndDate(LocalDateTime.now().plusDays(1));
+        loyaltyRepository.save(loyalty);
+
+        LineLoyalty line = null;
+        for (long deadline = System.currentTimeMillis() + 5_000; System.currentTimeMillis() < deadline; ) {
+            line = loyaltyEngine.evaluate(cart).get(0);
+            if (line.promotionName() != null) break;
+            Thread.sleep(10);
+        }
+        assertThat(line).isEqualTo(new LineLoyalty(new BigDecimal("3.00"), false, "Repository write", true));
+    }
+}
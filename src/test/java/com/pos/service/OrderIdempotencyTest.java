@@ -0,0 +1,60 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.dto.CreateOrderDTO;
+import com.pos.dto.OrderSnapshot;
+import com.pos.support.PosFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A retried submission is answered with the original order, whether the idempotency
+ * cache still holds it or it has to be loaded back from the database, and the answer
+ * serializes outside any transaction.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderIdempotencyTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private OrderIdempotencyCache idempotencyCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void retryAfterCacheMissReturnsStoredOrder() throws Exception {
+        Long sessionId = PosFixtures.openSession(sessionService, "idempotency");
+        CreateOrderDTO dto = PosFixtures.cashSale(PosFixtures.item("001", 2));
+        String key = UUID.randomUUID().toString();
+
+        OrderSnapshot first = orderService.createOrder(sessionId, dto, key);
+        String firstJson = objectMapper.writeValueAsString(first);
+
+        assertThat(objectMapper.writeValueAsString(orderService.createOrder(sessionId, dto, key)))
+                .isEqualTo(firstJson);
+
+        ((Map<?, ?>) ReflectionTestUtils.getField(idempotencyCache, "entries")).clear();
+        OrderSnapshot reloaded = orderService.createOrder(sessionId, dto, key);
+
+        assertThat(reloaded.getId()).isEqualTo(first.getId());
+        assertThat(reloaded.getOrderNumber()).isEqualTo(first.getOrderNumber());
+        assertThat(reloaded.getItems()).hasSize(1);
+        assertThat(reloaded.getItems().get(0).getProduct().getBarcode()).isEqualTo("001");
+        assertThat(objectMapper.writeValueAsString(reloaded)).contains("\"orderNumber\"");
+    }
+}
@@ -0,0 +1,57 @@
+package com.pos.service;
+
+import com.pos.dto.CartItemDTO;
+import com.pos.dto.CreateOrderDTO;
+import com.pos.dto.OrderSnapshot;
+import com.pos.support.PosFixtures;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A 50-line order goes out as batched INSERTs: pooled ids are known before insert,
+ * so Hibernate does not need one statement per row to learn them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderInsertBatchingTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void fiftyLineOrderIsInsertedInBatches() throws Exception {
+        Long sessionId = PosFixtures.openSession(sessionService, "batching");
+
+        List<CartItemDTO> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(PosFixtures.item(String.format("%03d", i % 12 + 1), 1));
+        }
+        CreateOrderDTO dto = PosFixtures.cashSale(items);
+        orderService.createOrder(sessionId, dto); // warms the catalog cache and id blocks
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        OrderSnapshot order = orderService.createOrder(sessionId, dto);
+
+        assertThat(order.getItems()).hasSize(50);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(51);
+        // The order row, the item batch and the session lookup; not 51 INSERTs
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(5);
+    }
+}
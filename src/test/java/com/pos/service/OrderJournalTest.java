@@ -0,0 +1,73 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.model.Order;
+import com.pos.model.PosSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recovery keeps every line it cannot replay in {@code orders.rejected}, and emptying
+ * the applied journal leaves that file alone.
+ */
+class OrderJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unreadableAndTornLinesAreSetAside() throws Exception {
+        Files.writeString(dir.resolve("orders.journal"),
+                "1 " + entry("ORD-1") + "\n"
+                        + "2 {not json\n"
+                        + "3 " + entry("ORD-3") + "\n"
+                        + "4 {\"sessionId\":1,");
+
+        OrderJournal journal = new OrderJournal(objectMapper);
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "dir", dir.toString());
+        ReflectionTestUtils.setField(journal, "compactBytes", 0L);
+        journal.open();
+        try {
+            List<OrderJournal.Journaled> batch = journal.awaitBatch(10, 0);
+            assertThat(batch).extracting(OrderJournal.Journaled::seq).containsExactly(1L, 3L);
+
+            List<String> rejected = Files.readAllLines(dir.resolve("orders.rejected"));
+            assertThat(rejected).hasSize(2);
+            assertThat(rejected.get(0)).startsWith("2 {not json ");
+            assertThat(rejected.get(1)).startsWith("4 {\"sessionId\":1, ");
+
+            journal.markApplied(batch);
+            assertThat(Files.size(dir.resolve("orders.journal"))).isZero();
+            assertThat(Files.readAllLines(dir.resolve("orders.rejected"))).isEqualTo(rejected);
+        } finally {
+            journal.close();
+        }
+    }
+
+    private String entry(String orderNumber) throws Exception {
+        PosSession session = new PosSession();
+        session.setId(1L);
+        Order order = new Order();
+        order.setSession(session);
+        order.setSessionId(1L);
+        order.setCashierName("journal");
+        order.setOrderNumber(orderNumber);
+        order.setOrderType(Order.OrderType.SALE);
+        order.setStatus(Order.OrderStatus.COMPLETED);
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setCreatedAt(LocalDateTime.now());
+        return objectMapper.writeValueAsString(OrderJournal.Entry.of(order));
+    }
+}
@@ -0,0 +1,93 @@
+package com.pos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pos.dto.CartItemDTO;
+import com.pos.dto.CreateOrderDTO;
+import com.pos.dto.OrderSnapshot;
+import com.pos.model.Order;
+import com.pos.model.OrderItem;
+import com.pos.repository.OrderRepository;
+import com.pos.support.PosFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The streamed sync document of stored orders is byte for byte what the tree-built
+ * {@link LegacyOrderJson} produces for them, compact.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderJsonGoldenTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private OrderJsonService orderJsonService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void saleWithRewardLineAndVatCustomer() throws Exception {
+        CreateOrderDTO dto = new CreateOrderDTO();
+        dto.setItems(List.of(
+                new CartItemDTO("001", 3, null, new BigDecimal("1.25"), "Summer sale", null),
+                new CartItemDTO("002", 1, null, null, null, null),
+                new CartItemDTO("003", 1, null, new BigDecimal("2.50"), "Buy 2 get 1", true)));
+        dto.setPaymentMethod("CARD");
+        dto.setCustomerName("Golden Customer");
+        dto.setCustomerPhone("0501234567");
+        dto.setCustomerVat("300123456700003");
+
+        assertThat(assertMatchesLegacy(orderService.createOrder(PosFixtures.openSession(sessionService, "json-sale"), dto)))
+                .contains("\"vat\":\"300123456700003\"", "\"is_reward\":true");
+    }
+
+    @Test
+    void returnOrder() throws Exception {
+        CreateOrderDTO dto = new CreateOrderDTO();
+        dto.setItems(List.of(
+                new CartItemDTO("004", 2, null, new BigDecimal("0.75"), null, null),
+                new CartItemDTO("005", 1, null, null, null, null)));
+        dto.setPaymentMethod("CASH");
+        dto.setOrderType("RETURN");
+        dto.setOriginalOrderNumber("ORD-1-000042");
+        dto.setReturnReason("Damaged");
+
+        assertThat(assertMatchesLegacy(orderService.createOrder(PosFixtures.openSession(sessionService, "json-return"), dto)))
+                .contains("\"reason\":\"Damaged\"");
+    }
+
+    private String assertMatchesLegacy(OrderSnapshot created) {
+        String expected = transactionTemplate.execute(status -> {
+            Order order = orderRepository.findWithItemsByIdIn(List.of(created.getId())).get(0);
+            List<OrderItem> items = order.getItems().stream().sorted(Comparator.comparing(OrderItem::getId)).toList();
+            try {
+                return LegacyOrderJson.generate(objectMapper, order, items);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThat(orderJsonService.getJson(created.getId())).contains(expected);
+        return expected;
+    }
+}
@@ -0,0 +1,73 @@
+package com.pos.service;
+
+import com.pos.service.PricingEngine.LineInput;
+import com.pos.service.PricingEngine.Quote;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Random carts priced by {@link PricingEngine} and by the previous BigDecimal code give
+ * equal results, scale included ({@code BigDecimal.equals}, as records compare). Inputs
+ * cover the minor-unit path and every fallback: extra decimals, long rates, overflow.
+ */
+class PricingEngineTest {
+
+    private static final int CARTS = 200_000;
+
+    private final PricingEngine engine = new PricingEngine();
+
+    @Test
+    void matchesBigDecimalPricingOnRandomCarts() {
+        Random random = new Random(20261017L);
+        for (int i = 0; i < CARTS; i++) {
+            List<LineInput> lines = randomCart(random);
+            boolean isReturn = random.nextInt(4) == 0;
+
+            Quote expected = LegacyPricing.price(lines, isReturn);
+            assertThat(engine.price(lines, isReturn)).as("cart %s, return %s", lines, isReturn).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void emptyCartKeepsZeroScales() {
+        assertThat(engine.price(List.of(), false)).isEqualTo(LegacyPricing.price(List.of(), false));
+    }
+
+    private static List<LineInput> randomCart(Random random) {
+        int size = random.nextInt(12);
+        List<LineInput> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BigDecimal price = amount(random, 100_000);
+            BigDecimal discount = switch (random.nextInt(4)) {
+                case 0 -> null;
+                case 1 -> BigDecimal.ZERO;
+                default -> amount(random, 1_000);
+            };
+            lines.add(new LineInput(price, random.nextInt(101) - 50, discount, rate(random)));
+        }
+        return lines;
+    }
+
+    // Mostly 0-2 decimals; sometimes 3 (fallback) or a value too large for long minor units
+    private static BigDecimal amount(Random random, int bound) {
+        int kind = random.nextInt(50);
+        if (kind == 0) return new BigDecimal(Long.MAX_VALUE / (1 + random.nextInt(1000))).movePointLeft(2);
+        int scale = kind == 1 ? 3 : random.nextInt(3);
+        return BigDecimal.valueOf(random.nextInt(bound) * (long) Math.pow(10, scale) + random.nextInt(100), scale);
+    }
+
+    private static BigDecimal rate(Random random) {
+        return switch (random.nextInt(8)) {
+            case 0 -> BigDecimal.ZERO;
+            case 1 -> BigDecimal.valueOf(random.nextInt(100_000), 5);
+            case 2 -> new BigDecimal("0.15");
+            default -> BigDecimal.valueOf(random.nextInt(3_000), random.nextInt(5));
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.pos.service;
+
+import com.pos.dto.CloseSessionDTO;
+import com.pos.dto.OpenSessionDTO;
+import com.pos.model.PosSession;
+import com.pos.repository.PosSessionRepository;
+import com.pos.support.PosFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sessions written by another backend node (straight to the table, bypassing this
+ * node's registry) are seen by check/active, and numbering continues after them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SessionServiceTest {
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private PosSessionRepository sessionRepository;
+
+    @Test
+    void sessionOpenedOnAnotherNodeIsVisibleAndNumberedAfter() {
+        String cashier = "other-node";
+        PosSession elsewhere = new PosSession();
+        elsewhere.setCashierName(cashier);
+        elsewhere.setOpenCashier(cashier);
+        elsewhere.setSessionNumber(7);
+        elsewhere.setOpeningCash(BigDecimal.ZERO);
+        elsewhere.setStatus(PosSession.SessionStatus.OPEN);
+        elsewhere = sessionRepository.save(elsewhere);
+
+        assertThat(sessionService.hasActiveSession(cashier)).isTrue();
+        assertThat(sessionService.getActiveSession(cashier)).map(PosSession::getId).contains(elsewhere.getId());
+
+        OpenSessionDTO open = PosFixtures.openRequest(cashier);
+        SessionService.OpenedSession resumed = sessionService.openOrResume(open);
+        assertThat(resumed.existing()).isTrue();
+        assertThat(resumed.session().getId()).isEqualTo(elsewhere.getId());
+
+        sessionService.closeSession(elsewhere.getId(), new CloseSessionDTO(BigDecimal.ZERO, null));
+        assertThat(sessionService.hasActiveSession(cashier)).isFalse();
+
+        PosSession next = sessionService.openSession(open);
+        assertThat(next.getSessionNumber()).isEqualTo(8);
+    }
+}
@@ -0,0 +1,50 @@
+package com.pos.service;
+
+import com.pos.dto.CloseSessionDTO;
+import com.pos.model.Order;
+import com.pos.model.PosSession;
+import com.pos.support.PosFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * An order recorded after its session was closed (its transaction was still in flight
+ * at close) is not added on top of the closed row's totals.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SessionTotalsTest {
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionTotals sessionTotals;
+
+    @Test
+    void recordAfterCloseIsDropped() {
+        Long sessionId = PosFixtures.openSession(sessionService, "late-record");
+
+        sessionService.closeSession(sessionId, new CloseSessionDTO(BigDecimal.ZERO, null));
+
+        Order late = new Order();
+        late.setOrderNumber("LATE-1");
+        late.setTotalAmount(new BigDecimal("12.50"));
+        late.setTaxAmount(BigDecimal.ZERO);
+        late.setDiscountAmount(BigDecimal.ZERO);
+        late.setStatus(Order.OrderStatus.COMPLETED);
+        late.setOrderType(Order.OrderType.SALE);
+        sessionTotals.record(sessionId, late);
+        sessionTotals.flush();
+
+        PosSession closed = sessionService.getSessionById(sessionId).orElseThrow();
+        assertThat(closed.getTotalSales()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(closed.getTransactionCount()).isZero();
+    }
+}
@@ -0,0 +1,51 @@
+package com.pos.support;
+
+import com.pos.dto.CartItemDTO;
+import com.pos.dto.CreateOrderDTO;
+import com.pos.dto.OpenSessionDTO;
+import com.pos.service.SessionService;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Sessions and cash sales for tests, over the products seeded by DataLoader
+ * (barcodes 001 to 012).
+ */
+public final class PosFixtures {
+
+    private PosFixtures() {
+    }
+
+    public static OpenSessionDTO openRequest(String cashier) {
+        OpenSessionDTO open = new OpenSessionDTO();
+        open.setCashierName(cashier);
+        open.setOpeningCash(BigDecimal.ZERO);
+        return open;
+    }
+
+    /**
+     * Open a session with no opening cash; returns its id.
+     */
+    public static Long openSession(SessionService sessionService, String cashier) {
+        return sessionService.openSession(openRequest(cashier)).getId();
+    }
+
+    /**
+     * A line at the catalog price, without discount or promotion.
+     */
+    public static CartItemDTO item(String barcode, int quantity) {
+        return new CartItemDTO(barcode, quantity, null, null, null, null);
+    }
+
+    public static CreateOrderDTO cashSale(CartItemDTO... items) {
+        return cashSale(List.of(items));
+    }
+
+    public static CreateOrderDTO cashSale(List<CartItemDTO> items) {
+        CreateOrderDTO dto = new CreateOrderDTO();
+        dto.setItems(items);
+        dto.setPaymentMethod("CASH");
+        return dto;
+    }
+}